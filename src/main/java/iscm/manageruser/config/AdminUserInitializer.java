@@ -5,6 +5,7 @@ import iscm.manageruser.model.RoleEntity;
 import iscm.manageruser.model.UserEntity;
 import iscm.manageruser.repositories.RoleRepository;
 import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.service.RoleRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -12,8 +13,11 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
-import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Component
@@ -24,11 +28,14 @@ public class AdminUserInitializer implements CommandLineRunner {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final RoleRegistry roleRegistry;
 
-    public AdminUserInitializer(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder) {
+    public AdminUserInitializer(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder,
+                                RoleRegistry roleRegistry) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
+        this.roleRegistry = roleRegistry;
     }
 
     @Override
@@ -36,13 +43,18 @@ public class AdminUserInitializer implements CommandLineRunner {
     public void run(String... args) {
         // --- 1. Sincronizar los roles en la base de datos ---
         logger.info("Sincronizando roles de la base de datos...");
-        for (ERole roleName : EnumSet.allOf(ERole.class)) {
-            // findByName devuelve Optional<RoleEntity>. Si está vacío, lo creamos.
-            roleRepository.findByName(roleName).orElseGet(() -> {
+        // Una sola consulta para todos los roles; solo se insertan los que falten.
+        Map<ERole, RoleEntity> existing = new EnumMap<>(ERole.class);
+        roleRepository.findAll().forEach(role -> existing.put(role.getName(), role));
+        List<RoleEntity> missing = new ArrayList<>();
+        for (ERole roleName : ERole.values()) {
+            if (!existing.containsKey(roleName)) {
                 logger.info("Creando rol que no existe: {}", roleName);
-                return roleRepository.save(RoleEntity.builder().name(roleName).build());
-            });
+                missing.add(RoleEntity.builder().name(roleName).build());
+            }
         }
+        roleRepository.saveAll(missing).forEach(role -> existing.put(role.getName(), role));
+        roleRegistry.load(existing.values());
         logger.info("Sincronización de roles completada.");
 
         // --- 2. Crear el Usuario Administrador si no existe ---
@@ -54,13 +66,9 @@ public class AdminUserInitializer implements CommandLineRunner {
 
         logger.info("Creando usuario administrador por defecto...");
 
-        // --- Carga explícita de los roles que necesitamos desde la BD ---
-        // Esto garantiza que son entidades "managed"
-        RoleEntity adminRole = roleRepository.findByName(ERole.ADMIN)
-                .orElseThrow(() -> new IllegalStateException("Error crítico: El rol ADMIN no se pudo encontrar o crear."));
-
-        RoleEntity sistemasRole = roleRepository.findByName(ERole.SISTEMAS)
-                .orElseThrow(() -> new IllegalStateException("Error crítico: El rol SISTEMAS no se pudo encontrar o crear."));
+        // Los roles vienen del registro recién cargado: entidades "managed" de esta misma transacción
+        RoleEntity adminRole = roleRegistry.reference(ERole.ADMIN);
+        RoleEntity sistemasRole = roleRegistry.reference(ERole.SISTEMAS);
 
         Set<RoleEntity> adminRoles = new HashSet<>();
         adminRoles.add(adminRole);
@@ -0,0 +1,36 @@
+package iscm.manageruser.config;
+
+import iscm.manageruser.model.UserEntity;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sitúa el generador de ids de 'users' por encima del mayor id existente antes de la primera inserción.
+ * Los usuarios creados cuando la tabla usaba AUTO_INCREMENT no pasaron por la tabla de generadores, y sin
+ * esto el primer bloque reservado empezaría en 1. El valor guardado es el final del siguiente bloque
+ * (optimizador pooled), por eso se suma el tamaño de bloque. Nunca hace retroceder el generador.
+ */
+@Component
+@Slf4j
+public class IdGeneratorInitializer {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depende de la factoría de EntityManager para ejecutarse después de que Hibernate cree la tabla de generadores.
+    public IdGeneratorInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignUserIds() {
+        jdbcTemplate.update("INSERT INTO id_generadores (entidad, siguiente_id) "
+                + "SELECT 'users', COALESCE(MAX(id), 0) + ? FROM users "
+                + "ON DUPLICATE KEY UPDATE siguiente_id = GREATEST(siguiente_id, VALUES(siguiente_id))",
+                UserEntity.ID_ALLOCATION_SIZE);
+        Long next = jdbcTemplate.queryForObject("SELECT siguiente_id FROM id_generadores WHERE entidad = 'users'", Long.class);
+        log.info("Generador de ids de usuarios alineado: siguiente bloque hasta {}.", next);
+    }
+}
@@ -3,11 +3,16 @@ package iscm.manageruser.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import iscm.manageruser.security.jwt.JwtAlgorithm;
+import iscm.manageruser.security.jwt.JwtKey;
+import iscm.manageruser.security.jwt.JwtKeyRing;
 import org.springframework.core.io.Resource;
 import java.io.InputStream;
 import java.security.KeyStore;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class JwtKeyConfig {
@@ -21,6 +26,14 @@ public class JwtKeyConfig {
     @Value("${jwt.keystore.alias}")
     private String keyAlias;
 
+    // Alias de claves que ya no firman pero cuyos tokens siguen siendo válidos (y se publican en el JWKS) durante una rotación.
+    @Value("${jwt.keystore.retiring-aliases:}")
+    private List<String> retiringAliases;
+
+    // Algoritmo de firma: RS256 (RSA), ES256 (EC P-256) o EdDSA (Ed25519). Debe coincidir con el tipo de la clave del alias.
+    @Value("${jwt.signing.algorithm:RS256}")
+    private String signingAlgorithm;
+
     @Bean
     public KeyStore keyStore() throws Exception {
         KeyStore keyStore = KeyStore.getInstance("PKCS12");
@@ -31,12 +44,33 @@ public class JwtKeyConfig {
     }
 
     @Bean
-    public RSAPrivateKey rsaPrivateKey(KeyStore keyStore) throws Exception {
-        return (RSAPrivateKey) keyStore.getKey(keyAlias, keystorePassword.toCharArray());
-    }
+    public JwtKeyRing jwtKeyRing(KeyStore keyStore) throws Exception {
+        PrivateKey privateKey = (PrivateKey) keyStore.getKey(keyAlias, keystorePassword.toCharArray());
+        if (privateKey == null || keyStore.getCertificate(keyAlias) == null) {
+            throw new IllegalStateException("El keystore no contiene una clave privada con el alias '" + keyAlias + "'.");
+        }
+        PublicKey publicKey = keyStore.getCertificate(keyAlias).getPublicKey();
 
-    @Bean
-    public RSAPublicKey rsaPublicKey(KeyStore keyStore) throws Exception {
-        return (RSAPublicKey) keyStore.getCertificate(keyAlias).getPublicKey();
+        JwtAlgorithm configured = JwtAlgorithm.fromName(signingAlgorithm);
+        JwtAlgorithm actual = JwtAlgorithm.fromKey(publicKey);
+        if (configured != actual) {
+            throw new IllegalStateException("jwt.signing.algorithm=" + signingAlgorithm + " no coincide con la clave '"
+                    + keyAlias + "' del keystore, que corresponde a " + actual.jwsName() + ".");
+        }
+
+        List<JwtKey> retiringKeys = new ArrayList<>();
+        for (String alias : retiringAliases) {
+            if (alias.isBlank() || alias.equals(keyAlias)) {
+                continue;
+            }
+            if (keyStore.getCertificate(alias) == null) {
+                throw new IllegalStateException("El keystore no contiene un certificado con el alias '" + alias + "'.");
+            }
+            // Solo se necesita la clave pública: las claves en retirada ya no firman tokens nuevos.
+            PublicKey retiringKey = keyStore.getCertificate(alias).getPublicKey();
+            retiringKeys.add(new JwtKey(alias, JwtAlgorithm.fromKey(retiringKey), null, retiringKey));
+        }
+
+        return new JwtKeyRing(new JwtKey(keyAlias, actual, privateKey, publicKey), retiringKeys);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package iscm.manageruser.config;
+
+import iscm.manageruser.security.BoundedPasswordEncoder;
+import iscm.manageruser.security.PasswordHashingExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Codificador de contraseñas con prefijo de versión ("{bcrypt}", "{pbkdf2}") y coste calibrado al arrancar.
+ * El coste se elige para que un hash tarde aproximadamente security.password.target-hash-ms en este hardware,
+ * sin bajar nunca de los mínimos recomendados. Los hashes antiguos sin prefijo (BCrypt de coste 10) se siguen
+ * aceptando y se re-codifican con el algoritmo y coste actuales en el siguiente login correcto.
+ * El cálculo se hace en el {@link PasswordHashingExecutor}, nunca en los hilos de las peticiones.
+ */
+@Configuration
+@Slf4j
+public class PasswordEncoderConfig {
+
+    private static final int MIN_BCRYPT_STRENGTH = 10;
+    private static final int MAX_BCRYPT_STRENGTH = 16;
+    private static final int MIN_PBKDF2_ITERATIONS = 310_000;
+    private static final int MAX_PBKDF2_ITERATIONS = 10_000_000;
+    private static final int SAMPLES = 3;
+    private static final String SAMPLE_PASSWORD = "Calibracion#2025";
+
+    // Algoritmo con el que se codifican las contraseñas nuevas: bcrypt o pbkdf2.
+    @Value("${security.password.algorithm:bcrypt}")
+    private String algorithm;
+
+    // Latencia objetivo (ms) de un hash. 0 desactiva la calibración y usa los mínimos.
+    @Value("${security.password.target-hash-ms:250}")
+    private long targetHashMillis;
+
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder(PasswordHashingExecutor passwordHashingExecutor) {
+        int bcryptStrength = calibrateBcryptStrength();
+        int pbkdf2Iterations = "pbkdf2".equals(algorithm) ? calibratePbkdf2Iterations() : MIN_PBKDF2_ITERATIONS;
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put("pbkdf2", pbkdf2(pbkdf2Iterations));
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("security.password.algorithm=" + algorithm + " no es válido (bcrypt o pbkdf2).");
+        }
+
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        // Hashes anteriores a los prefijos de versión: todos son BCrypt ("$2a$10$...").
+        passwordEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+
+        log.info("Codificación de contraseñas: {} (bcrypt coste {}, pbkdf2 {} iteraciones, objetivo {} ms por hash).",
+                algorithm, bcryptStrength, pbkdf2Iterations, targetHashMillis);
+        return new BoundedPasswordEncoder(passwordEncoder, passwordHashingExecutor);
+    }
+
+    // Cada punto de coste de BCrypt duplica el tiempo: se mide el mínimo y se sube mientras quepa en el objetivo.
+    private int calibrateBcryptStrength() {
+        if (targetHashMillis <= 0) {
+            return MIN_BCRYPT_STRENGTH;
+        }
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_BCRYPT_STRENGTH);
+        double millis = measure(() -> encoder.encode(SAMPLE_PASSWORD));
+        int strength = MIN_BCRYPT_STRENGTH;
+        while (strength < MAX_BCRYPT_STRENGTH && millis * 2 <= targetHashMillis) {
+            millis *= 2;
+            strength++;
+        }
+        return strength;
+    }
+
+    // El tiempo de PBKDF2 es lineal en el número de iteraciones.
+    private int calibratePbkdf2Iterations() {
+        if (targetHashMillis <= 0) {
+            return MIN_PBKDF2_ITERATIONS;
+        }
+        PasswordEncoder encoder = pbkdf2(MIN_PBKDF2_ITERATIONS);
+        double millis = measure(() -> encoder.encode(SAMPLE_PASSWORD));
+        long iterations = (long) (MIN_PBKDF2_ITERATIONS * (targetHashMillis / millis));
+        return (int) Math.max(MIN_PBKDF2_ITERATIONS, Math.min(MAX_PBKDF2_ITERATIONS, iterations));
+    }
+
+    private static PasswordEncoder pbkdf2(int iterations) {
+        return new Pbkdf2PasswordEncoder("", 16, iterations, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+    }
+
+    // Mediana de varias muestras, tras una primera ejecución de calentamiento.
+    private static double measure(Supplier<String> hash) {
+        hash.get();
+        double[] samples = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            hash.get();
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -1,28 +1,62 @@
 package iscm.manageruser.controller;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
 import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import iscm.manageruser.security.jwt.JwtKey;
+import iscm.manageruser.security.jwt.JwtKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
-import java.util.Map;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
 
 @RestController
 @Tag(name = "Security", description = "Endpoints de seguridad y configuración pública.")
 public class JwkSetController {
 
-    private final RSAPublicKey publicKey;
+    // El documento JWKS no cambia mientras la aplicación está en marcha: se serializa una sola vez.
+    private final byte[] jwksDocument;
+    private final String eTag;
+    private final CacheControl cacheControl;
 
-    // Spring inyectará el bean RSAPublicKey que creamos en JwtKeyConfig
-    public JwkSetController(RSAPublicKey publicKey) {
-        this.publicKey = publicKey;
+    // Spring inyectará el bean JwtKeyRing que creamos en JwtKeyConfig
+    public JwkSetController(JwtKeyRing keyRing, @Value("${jwt.jwks.max-age:3600}") long maxAgeSeconds) {
+        // 1. Construir un JWK (RSA, EC u OKP) por cada clave: la activa y las que están en retirada.
+        //    El kid de cada una es su alias del keystore, el mismo que JwtUtils escribe en la cabecera del token.
+        List<JWK> jwks = keyRing.keys().stream()
+                .map(this::toPublicJwk)
+                .toList();
+
+        // 2. Crear el JWKSet y serializarlo (solo la parte pública de cada clave).
+        this.jwksDocument = new JWKSet(jwks).toString(true).getBytes(StandardCharsets.UTF_8);
+        this.eTag = "\"" + sha256(jwksDocument) + "\"";
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
     }
 
     @Operation(
@@ -42,7 +76,9 @@ public class JwkSetController {
                           "keys": [
                             {
                               "kty": "RSA",
-                              "kid": "iscm-key-1",
+                              "kid": "iscmjwt",
+                              "use": "sig",
+                              "alg": "RS256",
                               "n": "ALongBase64UrlEncodedString...",
                               "e": "AQAB"
                             }
@@ -52,17 +88,47 @@ public class JwkSetController {
                     )
             )
     )
+    @ApiResponse(responseCode = "304", description = "El JWK Set no ha cambiado desde la versión indicada en If-None-Match.", content = @Content)
     @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Map<String, Object> jwks() {
-        // 1. Construir un objeto RSAKey a partir de nuestra clave pública.
-        RSAKey rsaKey = new RSAKey.Builder(this.publicKey)
-                .keyID("bisa-bolsa-jwt") // Un ID único para esta clave. Debe coincidir con el alias del keystore.
-                .build();
+    public ResponseEntity<byte[]> jwks(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // 3. Peticiones condicionales: si el cliente ya tiene esta versión, respondemos 304 sin cuerpo.
+        if (ifNoneMatch != null && (ifNoneMatch.contains(eTag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jwksDocument);
+    }
 
-        // 2. Crear un JWKSet, que es una lista de claves (en nuestro caso, solo una).
-        JWKSet jwkSet = new JWKSet(rsaKey);
+    private JWK toPublicJwk(JwtKey key) {
+        String keyId = key.kid();
+        JWSAlgorithm algorithm = JWSAlgorithm.parse(key.algorithm().jwsName());
+        return switch (key.algorithm()) {
+            case RS256 -> new RSAKey.Builder((RSAPublicKey) key.publicKey())
+                    .keyID(keyId).keyUse(KeyUse.SIGNATURE).algorithm(algorithm).build();
+            case ES256 -> new ECKey.Builder(Curve.P_256, (ECPublicKey) key.publicKey())
+                    .keyID(keyId).keyUse(KeyUse.SIGNATURE).algorithm(algorithm).build();
+            // Para Ed25519 el JWK publica la clave cruda de 32 bytes, que son los últimos bytes de la codificación X.509.
+            case EdDSA -> {
+                byte[] encoded = key.publicKey().getEncoded();
+                byte[] x = Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length);
+                yield new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(x))
+                        .keyID(keyId).keyUse(KeyUse.SIGNATURE).algorithm(algorithm).build();
+            }
+        };
+    }
 
-        // 3. Convertir el JWKSet a un objeto JSON (un Map<String, Object>) para la respuesta.
-        return jwkSet.toJSONObject();
+    private static String sha256(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible en esta JVM", e);
+        }
     }
 }
\ No newline at end of file
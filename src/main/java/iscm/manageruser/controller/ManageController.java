@@ -8,18 +8,44 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import iscm.manageruser.exception.BadRequestException;
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.repositories.projections.UserVersionView;
+import iscm.manageruser.repositories.projections.UsersVersionView;
+import iscm.manageruser.request.BulkCreateResultDTO;
+import iscm.manageruser.request.BulkRoleChangeDTO;
+import iscm.manageruser.request.BulkUpdateResultDTO;
 import iscm.manageruser.request.CreateUserDTO;
+import iscm.manageruser.request.ImportJobDTO;
 import iscm.manageruser.request.UpdateAccountDTO;
 import iscm.manageruser.request.UpdatePasswordDTO;
+import iscm.manageruser.request.UserDirectoryStatsDTO;
+import iscm.manageruser.request.UserFilter;
+import iscm.manageruser.request.UserPageDTO;
+import iscm.manageruser.request.UserSearchResultDTO;
 import iscm.manageruser.request.UserResponseDTO;
+import iscm.manageruser.request.UserSelectionDTO;
+import iscm.manageruser.security.RoleAuthorities;
+import iscm.manageruser.service.UserBulkService;
+import iscm.manageruser.service.UserExportService;
+import iscm.manageruser.service.UserExportServiceImpl;
+import iscm.manageruser.service.UserImportService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import iscm.manageruser.service.UserService;
@@ -35,9 +61,16 @@ import iscm.manageruser.service.UserService;
 public class ManageController {
 
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserBulkService userBulkService;
+    private final UserImportService userImportService;
 
-    public ManageController(UserService userService) {
+    public ManageController(UserService userService, UserExportService userExportService, UserBulkService userBulkService,
+                            UserImportService userImportService) {
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.userBulkService = userBulkService;
+        this.userImportService = userImportService;
     }
 
     // --- Endpoints Administrativos ---
@@ -62,18 +95,212 @@ public class ManageController {
 
     @Operation
             (
-                    summary = "Obtener una lista de todos los usuarios",
-                    description = "Devuelve una lista paginada y filtrable de todos los usuarios del sistema. Requiere rol de ADMIN."
+                    summary = "Crear usuarios de forma masiva",
+                    description = "Crea de una vez todos los usuarios válidos de la lista (por ejemplo, al abrir una sucursal). Cada elemento se valida "
+                            + "por separado y los rechazados se informan con sus errores sin impedir el alta de los demás. Requiere rol de ADMIN."
+            )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lote procesado; el resultado de cada elemento va en 'items'.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkCreateResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Lista vacía, demasiado grande, o un usuario del lote se registró mientras se procesaba.", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado. El usuario autenticado no tiene el rol 'ADMIN'.", content = @Content),
+            @ApiResponse(responseCode = "503", description = "El pool de hash de contraseñas está saturado.", content = @Content)
+    })
+    @PostMapping("/users/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkCreateResultDTO> createUsers(@RequestBody List<CreateUserDTO> users) {
+        return ResponseEntity.ok(userBulkService.createUsers(users));
+    }
+
+    @Operation
+            (
+                    summary = "Desbloquear usuarios de forma masiva",
+                    description = "Desbloquea y reinicia los intentos fallidos de los usuarios indicados por nombre o por filtro (sucursal, ciudad, rol), "
+                            + "por ejemplo tras un incidente en una sucursal. Se ejecuta como una sola sentencia en la BD. Requiere rol de ADMIN."
+            )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Usuarios desbloqueados.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkUpdateResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Sin lista de usuarios ni filtro, lista demasiado grande o rol desconocido.", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado. El usuario autenticado no tiene el rol 'ADMIN'.", content = @Content)
+    })
+    @PostMapping("/users/bulk/unlock")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkUpdateResultDTO> unlockUsers(@RequestBody UserSelectionDTO selection) {
+        return ResponseEntity.ok(userBulkService.unlockUsers(selection));
+    }
+
+    @Operation
+            (
+                    summary = "Forzar la caducidad de contraseñas de forma masiva",
+                    description = "Hace caducar hoy la contraseña de los usuarios indicados por nombre o por filtro (sucursal, ciudad, rol), que "
+                            + "deberán cambiarla en su próximo login. Se ejecuta como una sola sentencia en la BD. Requiere rol de ADMIN."
+            )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Contraseñas caducadas.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkUpdateResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Sin lista de usuarios ni filtro, lista demasiado grande o rol desconocido.", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado. El usuario autenticado no tiene el rol 'ADMIN'.", content = @Content)
+    })
+    @PostMapping("/users/bulk/expire-password")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkUpdateResultDTO> expirePasswords(@RequestBody UserSelectionDTO selection) {
+        return ResponseEntity.ok(userBulkService.expirePasswords(selection));
+    }
+
+    @Operation
+            (
+                    summary = "Reasignar roles de forma masiva",
+                    description = "Asigna y quita roles a los usuarios indicados por nombre o por filtro (sucursal, ciudad, rol). Se ejecuta con "
+                            + "sentencias INSERT ... SELECT y DELETE en la BD, sin cargar los usuarios. Requiere rol de ADMIN."
+            )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Roles actualizados.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkUpdateResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Sin lista de usuarios ni filtro, sin roles que cambiar, un rol a la vez asignado y quitado, o rol desconocido.", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado. El usuario autenticado no tiene el rol 'ADMIN'.", content = @Content)
+    })
+    @PostMapping("/users/bulk/roles")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkUpdateResultDTO> changeRoles(@RequestBody BulkRoleChangeDTO change) {
+        return ResponseEntity.ok(userBulkService.changeRoles(change));
+    }
+
+    @Operation
+            (
+                    summary = "Importar usuarios desde un archivo CSV o XLSX",
+                    description = "Recibe una hoja de cálculo con una fila de cabecera (username, password, email, primer_nombre, segundo_nombre, "
+                            + "apellido_paterno, apellido_materno, sucursal, celular, telefono, direccion, ciudad, cargo, roles) y la procesa en "
+                            + "segundo plano por lotes. Los roles de una fila se separan con '|' (no con ',' ni ';', que pueden ser el separador del CSV); una fila con más celdas que la cabecera se rechaza. El progreso se consulta en la URL de 'Location'. "
+                            + "Requiere rol de ADMIN."
+            )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Importación en cola.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJobDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Archivo vacío o de un formato no soportado.", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Hay demasiadas importaciones en curso.", content = @Content)
+    })
+    @PostMapping(value = "/imports/users", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportJobDTO> importUsers(
+            @Parameter(description = "Archivo CSV (UTF-8, separado por ',' o ';') o XLSX; se lee la primera hoja.") @RequestParam("file") MultipartFile file) throws IOException {
+        ImportJobDTO job = userImportService.startImport(file);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    @Operation
+            (
+                    summary = "Consultar una importación de usuarios",
+                    description = "Devuelve el estado de la importación: filas procesadas, creadas y rechazadas (con sus errores), y filas por segundo. "
+                            + "Requiere rol de ADMIN."
             )
-    @ApiResponse
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estado de la importación.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJobDTO.class))),
+            @ApiResponse(responseCode = "404", description = "No existe la importación o ya se descartó su estado.", content = @Content)
+    })
+    @GetMapping("/imports/users/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportJobDTO> getImport(
+            @Parameter(description = "Identificador devuelto al subir el archivo.", required = true) @PathVariable String id) {
+        return ResponseEntity.ok(userImportService.getImport(id));
+    }
+
+    @Operation
             (
-                    responseCode = "200",
-                    description = "Lista de usuarios obtenida exitosamente."
+                    summary = "Obtener una lista de todos los usuarios",
+                    description = "Devuelve una lista paginada y filtrable de todos los usuarios del sistema. Requiere rol de ADMIN. "
+                            + "La paginación es por cursor: para la página siguiente se envía el 'nextCursor' de la respuesta anterior."
             )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lista de usuarios obtenida exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserPageDTO.class))),
+            @ApiResponse(responseCode = "304", description = "El directorio no ha cambiado desde la versión indicada en If-None-Match / If-Modified-Since.", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Parámetros inválidos (orden, cursor o rol desconocido).", content = @Content)
+    })
     @GetMapping("/users")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<UserResponseDTO>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<UserPageDTO> getAllUsers(
+            @Parameter(description = "Filtra por punto o agencia.", example = "Central") @RequestParam(required = false) String sucursal,
+            @Parameter(description = "Filtra por ciudad.", example = "La Paz") @RequestParam(required = false) String ciudad,
+            @Parameter(description = "Filtra por cargo.") @RequestParam(required = false) String cargo,
+            @Parameter(description = "Filtra por estado de bloqueo.") @RequestParam(required = false) Boolean bloqueado,
+            @Parameter(description = "Filtra por rol asignado.", example = "OFICIAL") @RequestParam(required = false) String role,
+            @Parameter(description = "Orden de la lista: id o username.", example = "id") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(description = "Cursor devuelto en 'nextCursor' de la página anterior.") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página (limitado por users.page.max-size).", example = "50") @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        // Validador de todo el directorio: si nada ha cambiado, ninguna página ha cambiado.
+        UsersVersionView version = userService.getUsersVersion();
+        String etag = "\"" + version.count() + "-" + version.versionSum() + "-" + version.maxVersion() + "\"";
+        if (request.checkNotModified(etag, toMillis(version.lastModified()))) {
+            return null;
+        }
+        UserFilter filter = UserFilter.builder()
+                .sucursal(sucursal)
+                .ciudad(ciudad)
+                .cargo(cargo)
+                .bloqueado(bloqueado)
+                .role(parseRole(role))
+                .build();
+        return conditionalOk(etag, version.lastModified()).body(userService.getUsers(filter, sort, cursor, size));
+    }
+
+    @Operation
+            (
+                    summary = "Estadísticas del directorio de usuarios",
+                    description = "Devuelve el número de usuarios por sucursal, ciudad y rol, los bloqueados y las contraseñas caducadas o por caducar. "
+                            + "Se sirve desde contadores en memoria conciliados periódicamente con la BD. Requiere rol de ADMIN."
+            )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estadísticas del directorio.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDirectoryStatsDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Los contadores aún no se han calculado.", content = @Content)
+    })
+    @GetMapping("/stats/users")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserDirectoryStatsDTO> getDirectoryStats(
+            @Parameter(description = "Días desde hoy para contar las contraseñas por caducar (limitado por users.stats.max-expiring-days).", example = "30") @RequestParam(required = false) Integer expiringWithinDays) {
+        return ResponseEntity.ok(userService.getDirectoryStats(expiringWithinDays));
+    }
+
+    @Operation
+            (
+                    summary = "Buscar usuarios",
+                    description = "Busca usuarios por partes de su nombre, apellidos, usuario, email, cargo, sucursal o ciudad, sin distinguir "
+                            + "mayúsculas ni acentos. Cada palabra de la consulta debe coincidir (completa, como prefijo o dentro de una palabra); "
+                            + "los resultados se ordenan por relevancia. Requiere rol de ADMIN."
+            )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resultados de la búsqueda, mejor puntuados primero."),
+            @ApiResponse(responseCode = "503", description = "El índice de búsqueda aún se está construyendo.", content = @Content)
+    })
+    @GetMapping("/search/users")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<UserSearchResultDTO>> searchUsers(
+            @Parameter(description = "Texto a buscar.", required = true, example = "perez la paz") @RequestParam String q,
+            @Parameter(description = "Número máximo de resultados (limitado por users.search.max-limit).", example = "20") @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userService.searchUsers(q, limit));
+    }
+
+    @Operation
+            (
+                    summary = "Exportar el directorio completo de usuarios",
+                    description = "Devuelve todos los usuarios en streaming, uno por línea: JSON (application/x-ndjson) o CSV. "
+                            + "La memoria usada no depende del número de usuarios. Requiere rol de ADMIN."
+            )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Exportación en curso; el cuerpo se escribe a medida que se lee de la BD.", content = {
+                    @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = UserResponseDTO.class)),
+                    @Content(mediaType = "text/csv")
+            }),
+            @ApiResponse(responseCode = "400", description = "Formato no soportado.", content = @Content)
+    })
+    @GetMapping("/export/users")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportUsers(
+            @Parameter(description = "Formato de salida: ndjson o csv.", example = "ndjson") @RequestParam(defaultValue = UserExportServiceImpl.FORMAT_NDJSON) String format,
+            HttpServletResponse response) throws IOException {
+        // Antes de las cabeceras: un formato no válido es un 400 normal, no una descarga.
+        UserExportServiceImpl.checkFormat(format);
+        boolean csv = UserExportServiceImpl.FORMAT_CSV.equals(format);
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"usuarios." + (csv ? "csv" : "ndjson") + "\"");
+        userExportService.exportUsers(format, response.getOutputStream());
     }
 
     @Operation
@@ -82,13 +309,21 @@ public class ManageController {
                     description = "Recupera los detalles de un usuario específico. Un ADMIN puede ver a cualquier usuario, mientras que un usuario normal solo puede ver su propia información.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Usuario encontrado y devuelto.", content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "El usuario no ha cambiado desde la versión indicada en If-None-Match / If-Modified-Since.", content = @Content),
             @ApiResponse(responseCode = "404", description = "El usuario con el nombre de usuario especificado no fue encontrado.", content = @Content)
     })
     @GetMapping("/users/{username}")
     @PreAuthorize("hasRole('ADMIN') or #username == authentication.principal.username")
     public ResponseEntity<UserResponseDTO> getUserByUsername(
-            @Parameter(description = "Nombre de usuario del usuario a buscar.", required = true, example = "jperez") @PathVariable String username) {
-        return ResponseEntity.ok(userService.getUserByUsername(username));
+            @Parameter(description = "Nombre de usuario del usuario a buscar.", required = true, example = "jperez") @PathVariable String username,
+            WebRequest request) {
+        // Primero solo la versión: si el cliente ya la tiene, 304 sin cargar el usuario.
+        UserVersionView version = userService.getUserVersion(username);
+        String etag = "\"" + version.version() + "\"";
+        if (request.checkNotModified(etag, toMillis(version.updatedAt()))) {
+            return null;
+        }
+        return conditionalOk(etag, version.updatedAt()).body(userService.getUserByUsername(username, version.version()));
     }
 
     @Operation
@@ -165,4 +400,31 @@ public class ManageController {
         userService.updatePassword(username, updatePasswordDTO);
         return ResponseEntity.noContent().build();
     }
+
+    // Spring Security añade por defecto "no-store" a todas las respuestas; aquí se permite guardar
+    // la respuesta siempre que se revalide con el ETag.
+    private static ResponseEntity.BodyBuilder conditionalOk(String etag, Instant lastModified) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate());
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    private static long toMillis(Instant instant) {
+        return instant == null ? -1 : instant.toEpochMilli();
+    }
+
+    private static ERole parseRole(String role) {
+        if (role == null || role.isEmpty()) {
+            return null;
+        }
+        ERole parsed = RoleAuthorities.fromName(role.toUpperCase());
+        if (parsed == null) {
+            throw new BadRequestException("El rol no existe: " + role);
+        }
+        return parsed;
+    }
 }
\ No newline at end of file
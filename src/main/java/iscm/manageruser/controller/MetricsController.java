@@ -0,0 +1,154 @@
+package iscm.manageruser.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import iscm.manageruser.security.KnownUsernameFilter;
+import iscm.manageruser.security.LoginAttemptTracker;
+import iscm.manageruser.security.LoginRateLimiter;
+import iscm.manageruser.security.PasswordHashingExecutor;
+import iscm.manageruser.security.jwt.TokenRevocationStore;
+import iscm.manageruser.security.jwt.VerifiedTokenCache;
+import iscm.manageruser.service.UserDirectoryStats;
+import iscm.manageruser.service.UserResponseCache;
+import iscm.manageruser.service.UserSearchIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/metrics")
+@Tag(name = "Metrics", description = "Métricas internas de rendimiento del servicio.")
+@SecurityRequirement(name = "bearerAuth")
+public class MetricsController {
+
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final LoginRateLimiter loginRateLimiter;
+    private final KnownUsernameFilter knownUsernameFilter;
+    private final UserSearchIndex userSearchIndex;
+    private final UserResponseCache userResponseCache;
+    private final UserDirectoryStats userDirectoryStats;
+
+    public MetricsController(VerifiedTokenCache verifiedTokenCache, TokenRevocationStore tokenRevocationStore,
+                             LoginAttemptTracker loginAttemptTracker, PasswordHashingExecutor passwordHashingExecutor,
+                             LoginRateLimiter loginRateLimiter, KnownUsernameFilter knownUsernameFilter,
+                             UserSearchIndex userSearchIndex, UserResponseCache userResponseCache,
+                             UserDirectoryStats userDirectoryStats) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.loginRateLimiter = loginRateLimiter;
+        this.knownUsernameFilter = knownUsernameFilter;
+        this.userSearchIndex = userSearchIndex;
+        this.userResponseCache = userResponseCache;
+        this.userDirectoryStats = userDirectoryStats;
+    }
+
+    @Operation(
+            summary = "Métricas de la caché de tokens verificados",
+            description = "Devuelve aciertos, fallos, ratio de aciertos, expulsiones y tamaño de la caché de tokens JWT ya verificados. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/token-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> tokenCache() {
+        return ResponseEntity.ok(verifiedTokenCache.stats());
+    }
+
+    @Operation(
+            summary = "Métricas de la lista de revocación de tokens",
+            description = "Devuelve el número de comprobaciones, positivos del filtro de Bloom, tokens revocados detectados y el tamaño de la lista. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/token-revocation")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> tokenRevocation() {
+        return ResponseEntity.ok(tokenRevocationStore.stats());
+    }
+
+    @Operation(
+            summary = "Métricas de intentos de login fallidos",
+            description = "Devuelve los intentos fallidos registrados, los ignorados, los bloqueos, las escrituras agrupadas en la BD y los usuarios en seguimiento. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/login-attempts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> loginAttempts() {
+        return ResponseEntity.ok(loginAttemptTracker.stats());
+    }
+
+    @Operation(
+            summary = "Métricas del pool de hash de contraseñas",
+            description = "Devuelve el tamaño del pool, la profundidad de la cola, las operaciones completadas y rechazadas, y la latencia media y máxima de cada hash. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/password-hashing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> passwordHashing() {
+        return ResponseEntity.ok(passwordHashingExecutor.stats());
+    }
+
+    @Operation(
+            summary = "Métricas del límite de tasa del login",
+            description = "Devuelve las peticiones de login permitidas y rechazadas por IP y por usuario, y el número de claves en memoria. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/login-rate-limit")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> loginRateLimit() {
+        return ResponseEntity.ok(loginRateLimiter.stats());
+    }
+
+    @Operation(
+            summary = "Métricas del filtro de usuarios existentes",
+            description = "Devuelve las búsquedas de login evitadas, la tasa esperada de falsos positivos y la memoria del filtro de Bloom de nombres de usuario. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/username-filter")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> usernameFilter() {
+        return ResponseEntity.ok(knownUsernameFilter.stats());
+    }
+
+    @Operation(
+            summary = "Métricas del índice de búsqueda de usuarios",
+            description = "Devuelve si el índice está listo, los usuarios, tokens y trigramas indexados, y el número y la latencia media de las búsquedas. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/user-search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> userSearch() {
+        return ResponseEntity.ok(userSearchIndex.stats());
+    }
+
+    @Operation(
+            summary = "Métricas de la caché de respuestas de usuario",
+            description = "Devuelve aciertos, fallos, ratio de aciertos, cargas y su latencia media, expulsiones, caducidades e invalidaciones de la caché de GET /users/{username}. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/user-cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> userCache() {
+        return ResponseEntity.ok(userResponseCache.stats());
+    }
+
+    @Operation(
+            summary = "Métricas de los contadores del directorio",
+            description = "Devuelve el número de conciliaciones con la BD, la última y su desviación respecto a los contadores incrementales, y las actualizaciones incrementales aplicadas. Requiere rol de ADMIN."
+    )
+    @ApiResponse(responseCode = "200", description = "Métricas obtenidas exitosamente.")
+    @GetMapping("/user-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> userStats() {
+        return ResponseEntity.ok(userDirectoryStats.stats());
+    }
+}
@@ -0,0 +1,114 @@
+package iscm.manageruser.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import iscm.manageruser.request.IntrospectionRequest;
+import iscm.manageruser.request.IntrospectionResponseDTO;
+import iscm.manageruser.request.RefreshTokenRequest;
+import iscm.manageruser.security.jwt.JwtUtils;
+import iscm.manageruser.security.jwt.TokenRevocationStore;
+import iscm.manageruser.security.jwt.VerifiedTokenCache;
+import iscm.manageruser.service.IssuedTokens;
+import iscm.manageruser.service.RefreshTokenService;
+import iscm.manageruser.service.TokenIntrospectionService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/token")
+@Tag(name = "Security", description = "Endpoints de seguridad y configuración pública.")
+public class TokenController {
+
+    private final RefreshTokenService refreshTokenService;
+    private final JwtUtils jwtUtils;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    public TokenController(RefreshTokenService refreshTokenService, JwtUtils jwtUtils,
+                           VerifiedTokenCache verifiedTokenCache, TokenRevocationStore tokenRevocationStore,
+                           TokenIntrospectionService tokenIntrospectionService) {
+        this.refreshTokenService = refreshTokenService;
+        this.jwtUtils = jwtUtils;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.tokenIntrospectionService = tokenIntrospectionService;
+    }
+
+    @Operation(
+            summary = "Renovar el token de acceso",
+            description = "Canjea un refresh token válido por un nuevo token de acceso de corta duración y un nuevo refresh token. " +
+                    "El refresh token usado queda invalidado; si se vuelve a presentar, se revoca toda la sesión."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Tokens renovados exitosamente.", content = @Content(mediaType = "application/json", schema = @Schema(example = "{\"token\": \"eyJ...\", \"refreshToken\": \"q1w2e3...\", \"username\": \"jperez\", \"expiresIn\": 900}"))),
+            @ApiResponse(responseCode = "401", description = "Refresh token inválido, expirado, revocado o reutilizado.", content = @Content)
+    })
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Object>> refresh(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+        IssuedTokens tokens = refreshTokenService.refresh(refreshTokenRequest.refreshToken());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", tokens.accessToken());
+        response.put("refreshToken", tokens.refreshToken());
+        response.put("username", tokens.username());
+        response.put("expiresIn", jwtUtils.getTimeExpiration() / 1000);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.accessToken())
+                .body(response);
+    }
+
+    @Operation(
+            summary = "Revocar el token de acceso actual",
+            description = "Revoca inmediatamente el token de acceso con el que se hace la petición (cierre de sesión). " +
+                    "El token deja de ser aceptado aunque todavía no haya expirado."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Token revocado exitosamente.", content = @Content),
+            @ApiResponse(responseCode = "401", description = "No autenticado.", content = @Content)
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    @PostMapping("/revoke")
+    public ResponseEntity<Void> revoke(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        // El filtro de autorización ya verificó este token, así que aquí se resuelve desde la caché.
+        verifiedTokenCache.verify(authorization.substring("Bearer ".length()))
+                .filter(verified -> verified.jti() != null)
+                .ifPresent(verified -> tokenRevocationStore.revoke(verified.jti(), verified.expiresAt()));
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+            summary = "Inspeccionar un lote de tokens (RFC 7662)",
+            description = "Para servicios internos que no verifican localmente con el JWKS. Verifica en paralelo todos los tokens " +
+                    "del lote y devuelve, en el mismo orden, si cada uno está activo junto con su usuario, roles y expiración. " +
+                    "Requiere rol de ADMIN o SISTEMAS."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resultados de la introspección, en el orden de la petición."),
+            @ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande.", content = @Content),
+            @ApiResponse(responseCode = "403", description = "Acceso denegado.", content = @Content)
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    @PostMapping("/introspect")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SISTEMAS')")
+    public ResponseEntity<List<IntrospectionResponseDTO>> introspect(@Valid @RequestBody IntrospectionRequest introspectionRequest) {
+        return ResponseEntity.ok(tokenIntrospectionService.introspect(introspectionRequest.tokens()));
+    }
+}
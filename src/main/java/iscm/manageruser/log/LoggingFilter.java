@@ -27,21 +27,35 @@ public class LoggingFilter implements Filter {
 
     // --- Lista de campos sensibles a enmascarar ---
     private static final List<String> SENSITIVE_FIELDS = Arrays.asList(
-            "password", "passwordActual", "newPassword", "token", "jwt"
+            "password", "passwordActual", "newPassword", "token", "tokens", "refreshToken", "jwt"
     );
 
+    // Respuestas en streaming: no se copian en memoria para registrarlas, se escriben directamente.
+    private static final List<String> STREAMING_PATHS = List.of("/api/v1/export/");
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
         // Generar un ID de correlación único para esta solicitud
         String correlationId = UUID.randomUUID().toString();
         MDC.put("correlationId", correlationId); // Poner en el contexto de logging
 
+        long startTime = System.currentTimeMillis();
+
+        if (isStreaming((HttpServletRequest) request)) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                logStreamingExchange((HttpServletRequest) request, (HttpServletResponse) response,
+                        System.currentTimeMillis() - startTime, correlationId);
+                MDC.clear();
+            }
+            return;
+        }
+
         // Usar los wrappers de Spring
         ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper((HttpServletRequest) request);
         ContentCachingResponseWrapper wrappedResponse = new ContentCachingResponseWrapper((HttpServletResponse) response);
 
-        long startTime = System.currentTimeMillis();
-
         try {
             chain.doFilter(wrappedRequest, wrappedResponse);
         } finally {
@@ -57,6 +71,29 @@ public class LoggingFilter implements Filter {
         }
     }
 
+    private boolean isStreaming(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return STREAMING_PATHS.stream().anyMatch(uri::startsWith);
+    }
+
+    private void logStreamingExchange(HttpServletRequest request, HttpServletResponse response, long duration, String correlationId) {
+        try {
+            Map<String, Object> logMap = Map.of(
+                    "type", "STREAMING_EXCHANGE",
+                    "correlationId", correlationId,
+                    "method", request.getMethod(),
+                    "uri", request.getRequestURI(),
+                    "clientIp", request.getRemoteAddr(),
+                    "principal", request.getUserPrincipal() != null ? request.getUserPrincipal().getName() : "anonymous",
+                    "status", response.getStatus(),
+                    "durationMs", duration
+            );
+            logger.info(objectMapper.writeValueAsString(logMap));
+        } catch (Exception e) {
+            logger.warn("Failed to log streaming exchange", e);
+        }
+    }
+
     private void logRequest(ContentCachingRequestWrapper request, String correlationId) {
         try {
             String requestBody = new String(request.getContentAsByteArray(), StandardCharsets.UTF_8);
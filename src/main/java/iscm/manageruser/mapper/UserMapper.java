@@ -1,14 +1,51 @@
 package iscm.manageruser.mapper;
 
+import iscm.manageruser.model.RoleEntity;
 import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.projections.UserView;
+import iscm.manageruser.service.RoleRegistry;
+import iscm.manageruser.request.CreateUserDTO;
 import iscm.manageruser.request.UserResponseDTO;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
 public class UserMapper {
 
+    private final RoleRegistry roleRegistry;
+
+    public UserMapper(RoleRegistry roleRegistry) {
+        this.roleRegistry = roleRegistry;
+    }
+
+    /**
+     * Nuevo usuario a partir de la petición de alta, con la contraseña ya codificada y los roles ya resueltos.
+     */
+    public UserEntity toUserEntity(CreateUserDTO createUserDTO, String encodedPassword, Set<RoleEntity> roles) {
+        return UserEntity.builder()
+                .username(createUserDTO.getUsername())
+                .password(encodedPassword)
+                .email(createUserDTO.getEmail())
+                .primer_nombre(createUserDTO.getPrimer_nombre())
+                .segundo_nombre(createUserDTO.getSegundo_nombre())
+                .apellido_paterno(createUserDTO.getApellido_paterno())
+                .apellido_materno(createUserDTO.getApellido_materno())
+                .sucursal(createUserDTO.getSucursal())
+                .direccion(createUserDTO.getDireccion())
+                .celular(createUserDTO.getCelular())
+                .telefono(createUserDTO.getTelefono())
+                .ciudad(createUserDTO.getCiudad())
+                .cargo(createUserDTO.getCargo())
+                .fecha_caducidad_password(LocalDate.now().plusDays(90))
+                .intentos_ingreso(0)
+                .bloqueado(false)
+                .roles(roles)
+                .build();
+    }
+
     public UserResponseDTO toUserResponseDTO(UserEntity userEntity) {
         if (userEntity == null) {
             return null;
@@ -20,19 +57,52 @@ public class UserMapper {
                 userEntity.getEmail(),
                 buildNombreCompleto(userEntity),
                 userEntity.getSucursal(),
-                userEntity.getDireccion(),
                 userEntity.getTelefono(),
+                userEntity.getDireccion(),
                 userEntity.getCelular(),
                 userEntity.getCiudad(),
                 userEntity.getCargo(),
                 userEntity.isBloqueado(),
                 userEntity.getFecha_caducidad_password(),
                 userEntity.getRoles().stream()
-                        .map(role -> role.getName().name())
+                        // Por id: las referencias del registro de roles no se inicializan
+                        .map(role -> roleRegistry.nameOf(role).name())
                         .collect(Collectors.toSet())
         );
     }
 
+    /**
+     * Convierte la vista de lectura: los campos ya vienen listos, solo se separa la lista de roles.
+     */
+    public UserResponseDTO toUserResponseDTO(UserView userView) {
+        if (userView == null) {
+            return null;
+        }
+
+        return new UserResponseDTO(
+                userView.id(),
+                userView.username(),
+                userView.email(),
+                userView.nombreCompleto(),
+                userView.sucursal(),
+                userView.telefono(),
+                userView.direccion(),
+                userView.celular(),
+                userView.ciudad(),
+                userView.cargo(),
+                userView.bloqueado(),
+                userView.fechaCaducidadPassword(),
+                splitRoles(userView.roles())
+        );
+    }
+
+    private Set<String> splitRoles(String roles) {
+        if (roles == null || roles.isEmpty()) {
+            return Set.of();
+        }
+        return Set.of(roles.split(","));
+    }
+
     private String buildNombreCompleto(UserEntity userEntity) {
         StringBuilder nombreCompleto = new StringBuilder();
         nombreCompleto.append(userEntity.getPrimer_nombre());
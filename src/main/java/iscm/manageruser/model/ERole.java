@@ -1,4 +1,8 @@
 package iscm.manageruser.model;
+/**
+ * Roles del sistema. Los ordinales forman parte del formato del token (máscara de bits del claim "rm"):
+ * añadir siempre los roles nuevos al final y no reordenar ni eliminar los existentes.
+ */
 public enum ERole {
     ADMIN,
     JEFE,
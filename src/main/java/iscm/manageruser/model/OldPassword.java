@@ -4,13 +4,21 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
 
+import java.time.Instant;
+
+/**
+ * Entrada del historial de contraseñas de un usuario. Solo se consultan las más recientes
+ * (índice por usuario y fecha) y las que quedan fuera de esa ventana se purgan periódicamente.
+ */
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name="credenciales")
+@Table(name="credenciales", indexes = {
+        @Index(name = "idx_credenciales_user_fecha", columnList = "user_id, fecha_creacion")
+})
 public class OldPassword {
 
     @Id
@@ -20,4 +28,11 @@ public class OldPassword {
 
     @NotBlank
     private String password;
+
+    // Columna de la relación de UserEntity.old_passwords; esta entidad es la que la escribe.
+    @Column(name = "user_id")
+    private Long user_id;
+
+    // Null en las entradas anteriores a este campo; se ordenan después de las fechadas.
+    private Instant fecha_creacion;
 }
@@ -0,0 +1,64 @@
+package iscm.manageruser.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Refresh token opaco y rotativo. Solo se almacena su hash SHA-256 (nunca el token en claro).
+ * Todos los tokens obtenidos por rotación a partir de un mismo login comparten 'familia',
+ * lo que permite revocar la cadena entera si se detecta la reutilización de un token ya rotado.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_refresh_tokens_familia", columnList = "familia"),
+        @Index(name = "idx_refresh_tokens_user_id", columnList = "user_id")
+})
+public class RefreshTokenEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String token_hash;
+
+    @Column(nullable = false, length = 36)
+    private String familia;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserEntity user;
+
+    @Column(nullable = false)
+    private Instant fecha_creacion;
+
+    @Column(nullable = false)
+    private Instant fecha_expiracion;
+
+    // true cuando el token ya fue canjeado por uno nuevo (rotado).
+    private boolean usado;
+
+    // true cuando la familia fue revocada (por reutilización, bloqueo o cambio de contraseña).
+    private boolean revocado;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RefreshTokenEntity that = (RefreshTokenEntity) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,57 @@
+package iscm.manageruser.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Revocación persistida de tokens de acceso. Puede ser de un token concreto (jti) o de todos los
+ * tokens de un usuario emitidos antes de 'revocado_desde' (bloqueo o cambio de contraseña).
+ * La fila deja de ser necesaria en 'fecha_expiracion', cuando ya no queda ningún token afectado vivo.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_fecha_expiracion", columnList = "fecha_expiracion"),
+        @Index(name = "idx_revoked_tokens_fecha_creacion", columnList = "fecha_creacion")
+})
+public class RevokedTokenEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Identificador del token revocado, o null si la revocación es de todos los tokens del usuario.
+    @Column(length = 36)
+    private String jti;
+
+    // Usuario cuyos tokens emitidos antes de 'revocado_desde' quedan revocados, o null si es un jti concreto.
+    @Column(length = 30)
+    private String username;
+
+    private Instant revocado_desde;
+
+    @Column(nullable = false)
+    private Instant fecha_creacion;
+
+    @Column(nullable = false)
+    private Instant fecha_expiracion;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RevokedTokenEntity that = (RevokedTokenEntity) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
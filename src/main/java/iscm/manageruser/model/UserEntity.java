@@ -5,6 +5,9 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Objects;
 import java.util.Set;
@@ -15,10 +18,30 @@ import java.util.Set;
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "users",uniqueConstraints = {@UniqueConstraint(columnNames = {"username"} )})
+@Table(name = "users",uniqueConstraints = {@UniqueConstraint(columnNames = {"username"} )}, indexes = {
+        // Filtros del listado paginado. InnoDB añade el id a cada índice secundario, así que también
+        // sirven para "filtro = ? AND id > ? ORDER BY id".
+        @Index(name = "idx_users_sucursal", columnList = "sucursal"),
+        @Index(name = "idx_users_ciudad", columnList = "ciudad"),
+        @Index(name = "idx_users_cargo", columnList = "cargo"),
+        @Index(name = "idx_users_bloqueado", columnList = "bloqueado"),
+        // Conciliación de las contraseñas por caducar en las estadísticas del directorio
+        @Index(name = "idx_users_fecha_caducidad_password", columnList = "fecha_caducidad_password"),
+        // Índice de cobertura para el validador del listado (COUNT, SUM y MAX sin leer las filas)
+        @Index(name = "idx_users_version", columnList = "version, updated_at"),
+        // Sincronización periódica del filtro de usuarios existentes (usuarios modificados desde...)
+        @Index(name = "idx_users_updated_at", columnList = "updated_at")
+})
 public class UserEntity {
+
+    // Ids reservados de una vez en la tabla de generadores. Con IDENTITY Hibernate tenía que insertar cada
+    // fila por separado para conocer su id; con ids reservados de antemano puede agrupar los INSERT en lotes JDBC.
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_id")
+    @TableGenerator(name = "users_id", table = "id_generadores", pkColumnName = "entidad", valueColumnName = "siguiente_id",
+            pkColumnValue = "users", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     @NotBlank
     @Size(max=30)
@@ -77,12 +100,23 @@ public class UserEntity {
 
     private boolean bloqueado;
 
+    // Bloqueo optimista y ETag de las respuestas. Las actualizaciones masivas que cambian datos visibles
+    // deben incrementarla a mano (las sentencias UPDATE de JPQL no lo hacen).
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    private Instant updated_at;
+
     @ManyToMany(fetch=FetchType.EAGER, targetEntity = RoleEntity.class, cascade= CascadeType.ALL)
-    @JoinTable(name = "user_roles", joinColumns = @JoinColumn(name= "user_id"), inverseJoinColumns = @JoinColumn(name="role_id"))
+    @JoinTable(name = "user_roles", joinColumns = @JoinColumn(name= "user_id"), inverseJoinColumns = @JoinColumn(name="role_id"),
+            indexes = @Index(name = "idx_user_roles_role_user", columnList = "role_id, user_id"))
     private Set<RoleEntity> roles;
 
-    @OneToMany(cascade = CascadeType.ALL)
-    @JoinColumn(name="user_id")
+    // Solo lectura: el historial se escribe a través de OldPasswordRepository y nunca se carga entero.
+    @OneToMany
+    @JoinColumn(name="user_id", insertable = false, updatable = false)
     private Set<OldPassword> old_passwords;
 
     @Override
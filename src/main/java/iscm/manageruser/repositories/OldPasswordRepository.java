@@ -1,7 +1,37 @@
 package iscm.manageruser.repositories;
 
 import iscm.manageruser.model.OldPassword;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface OldPasswordRepository extends CrudRepository<OldPassword, Long> {
+
+    /**
+     * Hashes de las contraseñas más recientes del usuario (las más nuevas primero), limitados a la ventana
+     * del historial. Usa el índice (user_id, fecha_creacion).
+     */
+    @Query("SELECT o.password FROM OldPassword o WHERE o.user_id = :userId ORDER BY o.fecha_creacion DESC, o.id DESC")
+    List<String> findRecentPasswords(Long userId, Limit limit);
+
+    /**
+     * Ids de un lote de entradas que han quedado fuera de la ventana de historial de su usuario.
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT id FROM (
+                SELECT ID AS id, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY fecha_creacion DESC, ID DESC) AS posicion
+                FROM credenciales
+            ) historial
+            WHERE posicion > :keep
+            LIMIT :batchSize""")
+    List<Long> findIdsBeyondHistory(int keep, int batchSize);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OldPassword o WHERE o.id IN :ids")
+    int deleteByIds(List<Long> ids);
 }
@@ -0,0 +1,41 @@
+package iscm.manageruser.repositories;
+
+import iscm.manageruser.model.RefreshTokenEntity;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends CrudRepository<RefreshTokenEntity, Long> {
+
+    /**
+     * Busca un refresh token por su hash (columna indexada y única) trayendo en la misma consulta
+     * al usuario y sus roles, que es todo lo necesario para firmar el nuevo token de acceso.
+     */
+    @Query("SELECT r FROM RefreshTokenEntity r JOIN FETCH r.user u LEFT JOIN FETCH u.roles WHERE r.token_hash = :tokenHash")
+    Optional<RefreshTokenEntity> findByTokenHashWithUser(String tokenHash);
+
+    /**
+     * Marca el token como usado solo si aún no lo estaba. Devuelve 0 si otra petición lo rotó antes,
+     * lo que se trata como reutilización.
+     */
+    @Modifying
+    @Query("UPDATE RefreshTokenEntity r SET r.usado = true WHERE r.id = :id AND r.usado = false AND r.revocado = false")
+    int markAsUsed(Long id);
+
+    @Modifying
+    @Query("UPDATE RefreshTokenEntity r SET r.revocado = true WHERE r.familia = :familia AND r.revocado = false")
+    int revokeFamily(String familia);
+
+    @Modifying
+    @Query("UPDATE RefreshTokenEntity r SET r.revocado = true WHERE r.user.id IN (SELECT u.id FROM UserEntity u WHERE u.username = :username) AND r.revocado = false")
+    int revokeAllByUsername(String username);
+
+    @Modifying
+    @Query("DELETE FROM RefreshTokenEntity r WHERE r.fecha_expiracion < :now")
+    int deleteExpired(Instant now);
+}
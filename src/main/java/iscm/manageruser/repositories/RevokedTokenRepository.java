@@ -0,0 +1,24 @@
+package iscm.manageruser.repositories;
+
+import iscm.manageruser.model.RevokedTokenEntity;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends CrudRepository<RevokedTokenEntity, Long> {
+
+    // Revocaciones aún vigentes creadas a partir de un instante (carga inicial y sincronización entre nodos).
+    @Query("SELECT r FROM RevokedTokenEntity r WHERE r.fecha_expiracion > :now AND r.fecha_creacion >= :since")
+    List<RevokedTokenEntity> findActiveCreatedSince(Instant now, Instant since);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedTokenEntity r WHERE r.fecha_expiracion <= :now")
+    int deleteExpired(Instant now);
+}
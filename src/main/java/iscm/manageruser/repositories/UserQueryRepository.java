@@ -0,0 +1,81 @@
+package iscm.manageruser.repositories;
+
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.repositories.projections.UserView;
+import iscm.manageruser.request.UserFilter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Consultas del listado de usuarios y operaciones masivas que se construyen dinámicamente según los filtros recibidos.
+ */
+public interface UserQueryRepository {
+
+    /**
+     * Ids de los usuarios que cumplen el filtro con id mayor que afterId (o desde el principio si es null),
+     * ordenados por id y limitados a 'limit' filas.
+     */
+    List<Long> findIdsAfterId(UserFilter filter, Long afterId, int limit);
+
+    /**
+     * Igual que {@link #findIdsAfterId}, pero ordenados por nombre de usuario.
+     */
+    List<Long> findIdsAfterUsername(UserFilter filter, String afterUsername, int limit);
+
+    /**
+     * Vista de lectura de un usuario: solo las columnas de la respuesta, sin hash ni entidades gestionadas.
+     */
+    Optional<UserView> findViewByUsername(String username);
+
+    /**
+     * Segundo paso del listado paginado: las vistas de solo los usuarios indicados, con sus roles agregados
+     * en la misma consulta. No garantiza el orden; quien llama lo restablece a partir de los ids.
+     */
+    List<UserView> findViewsByIdIn(Collection<Long> ids);
+
+    /**
+     * Recorre las vistas de todos los usuarios, en orden de id, con un cursor de solo avance del driver.
+     * Cada usuario es una fila con sus roles ya agregados: no hay entidades que se vayan acumulando.
+     * Debe consumirse dentro de una transacción y cerrarse.
+     */
+    Stream<UserView> streamViews();
+
+    /*
+     * Operaciones masivas: una sola sentencia sobre los usuarios seleccionados por nombre (si usernames no es null)
+     * y por el filtro, sin cargar entidades. Devuelven las filas afectadas y deben ejecutarse en una transacción.
+     * Las que cambian datos de la respuesta del usuario incrementan su versión (ETag) y su fecha de modificación.
+     */
+
+    /**
+     * Desbloquea y reinicia los intentos fallidos de los usuarios seleccionados que lo necesiten.
+     */
+    int unlockUsers(Collection<String> usernames, UserFilter filter, Instant now);
+
+    /**
+     * Hace caducar en la fecha indicada la contraseña de los usuarios seleccionados que aún no ha caducado.
+     */
+    int expirePasswords(Collection<String> usernames, UserFilter filter, LocalDate expiresOn, Instant now);
+
+    /**
+     * Incrementa la versión de los usuarios seleccionados a los que falta alguno de los roles a añadir o que
+     * tienen alguno de los roles a quitar. Se ejecuta antes de cambiar los roles, con los mismos argumentos.
+     */
+    int touchUsersForRoleChange(Collection<String> usernames, UserFilter filter, Set<ERole> addRoles, Set<ERole> removeRoles,
+                                Instant now);
+
+    /**
+     * Asigna los roles a los usuarios seleccionados que aún no los tienen (INSERT ... SELECT).
+     */
+    int addRoles(Collection<String> usernames, UserFilter filter, Set<ERole> roles);
+
+    /**
+     * Quita los roles a los usuarios seleccionados que los tienen.
+     */
+    int removeRoles(Collection<String> usernames, UserFilter filter, Set<ERole> roles);
+}
@@ -0,0 +1,279 @@
+package iscm.manageruser.repositories;
+
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.model.RoleEntity;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.projections.UserView;
+import iscm.manageruser.request.UserFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Paginación por cursor (keyset): en lugar de OFFSET se pide "clave > última clave vista", de modo que
+ * cada página cuesta lo mismo sin importar lo avanzada que esté. Solo se seleccionan ids; las entidades
+ * con sus roles se cargan después para esos ids, así Hibernate nunca pagina en memoria un JOIN FETCH.
+ * Las operaciones masivas son sentencias nativas (UPDATE, INSERT ... SELECT y DELETE multitabla) que MySQL
+ * resuelve entero en el servidor: ninguna fila llega a la aplicación ni al contexto de persistencia.
+ */
+public class UserQueryRepositoryImpl implements UserQueryRepository {
+
+    // Columnas de UserView. CONCAT_WS omite los NULL; NULLIF trata igual las partes del nombre vacías.
+    private static final String USER_VIEW_SELECT = """
+            SELECT u.id AS id, u.username AS username, u.email AS email,
+                   CONCAT_WS(' ', u.primer_nombre, NULLIF(u.segundo_nombre, ''), NULLIF(u.apellido_paterno, ''),
+                             NULLIF(u.apellido_materno, '')) AS nombreCompleto,
+                   u.sucursal AS sucursal, u.telefono AS telefono, u.direccion AS direccion, u.celular AS celular,
+                   u.ciudad AS ciudad, u.cargo AS cargo, u.bloqueado AS bloqueado,
+                   u.fecha_caducidad_password AS fechaCaducidadPassword,
+                   GROUP_CONCAT(r.name ORDER BY r.name SEPARATOR ',') AS roles
+            FROM users u
+            LEFT JOIN user_roles ur ON ur.user_id = u.id
+            LEFT JOIN roles r ON r.id = ur.role_id
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIdsAfterId(UserFilter filter, Long afterId, int limit) {
+        return findIdsAfter(filter, "id", afterId, limit);
+    }
+
+    @Override
+    public List<Long> findIdsAfterUsername(UserFilter filter, String afterUsername, int limit) {
+        return findIdsAfter(filter, "username", afterUsername, limit);
+    }
+
+    @Override
+    public Optional<UserView> findViewByUsername(String username) {
+        return userViewQuery("WHERE u.username = :username GROUP BY u.id")
+                .setParameter("username", username)
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    public List<UserView> findViewsByIdIn(Collection<Long> ids) {
+        return userViewQuery("WHERE u.id IN (:ids) GROUP BY u.id")
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<UserView> streamViews() {
+        // Fetch size Integer.MIN_VALUE: el driver de MySQL entrega las filas una a una en lugar de todas a la vez.
+        return userViewQuery("GROUP BY u.id ORDER BY u.id")
+                .setFetchSize(Integer.MIN_VALUE)
+                .getResultStream();
+    }
+
+    @Override
+    public int unlockUsers(Collection<String> usernames, UserFilter filter, Instant now) {
+        Selection selection = selection(usernames, filter);
+        selection.parameters.put("now", now);
+        return executeUpdate("UPDATE users u" + selection.joins
+                + " SET u.bloqueado = FALSE, u.intentos_ingreso = 0, u.version = u.version + 1, u.updated_at = :now"
+                + " WHERE " + selection.where("(u.bloqueado = TRUE OR u.intentos_ingreso > 0)"), selection.parameters);
+    }
+
+    @Override
+    public int expirePasswords(Collection<String> usernames, UserFilter filter, LocalDate expiresOn, Instant now) {
+        Selection selection = selection(usernames, filter);
+        selection.parameters.put("expiresOn", expiresOn);
+        selection.parameters.put("now", now);
+        return executeUpdate("UPDATE users u" + selection.joins
+                + " SET u.fecha_caducidad_password = :expiresOn, u.version = u.version + 1, u.updated_at = :now"
+                + " WHERE " + selection.where("(u.fecha_caducidad_password IS NULL OR u.fecha_caducidad_password > :expiresOn)"),
+                selection.parameters);
+    }
+
+    @Override
+    public int touchUsersForRoleChange(Collection<String> usernames, UserFilter filter, Set<ERole> addRoles,
+                                       Set<ERole> removeRoles, Instant now) {
+        Selection selection = selection(usernames, filter);
+        selection.parameters.put("now", now);
+        List<String> changes = new ArrayList<>();
+        if (!addRoles.isEmpty()) {
+            // Le falta alguno: tiene menos de los pedidos.
+            changes.add("(SELECT COUNT(*) FROM user_roles aur JOIN roles ar ON ar.id = aur.role_id"
+                    + " WHERE aur.user_id = u.id AND ar.name IN (:addRoles)) < :addCount");
+            selection.parameters.put("addRoles", names(addRoles));
+            selection.parameters.put("addCount", addRoles.size());
+        }
+        if (!removeRoles.isEmpty()) {
+            changes.add("EXISTS (SELECT 1 FROM user_roles rur JOIN roles rr ON rr.id = rur.role_id"
+                    + " WHERE rur.user_id = u.id AND rr.name IN (:removeRoles))");
+            selection.parameters.put("removeRoles", names(removeRoles));
+        }
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        return executeUpdate("UPDATE users u" + selection.joins
+                + " SET u.version = u.version + 1, u.updated_at = :now"
+                + " WHERE " + selection.where("(" + String.join(" OR ", changes) + ")"), selection.parameters);
+    }
+
+    @Override
+    public int addRoles(Collection<String> usernames, UserFilter filter, Set<ERole> roles) {
+        if (roles.isEmpty()) {
+            return 0;
+        }
+        Selection selection = selection(usernames, filter);
+        selection.parameters.put("roles", names(roles));
+        // Una fila por usuario y rol que le falta; el filtro por rol une como mucho una fila por usuario.
+        return executeUpdate("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u" + selection.joins
+                + " JOIN roles r ON r.name IN (:roles)"
+                + " WHERE " + selection.where("NOT EXISTS (SELECT 1 FROM user_roles x WHERE x.user_id = u.id AND x.role_id = r.id)"),
+                selection.parameters);
+    }
+
+    @Override
+    public int removeRoles(Collection<String> usernames, UserFilter filter, Set<ERole> roles) {
+        if (roles.isEmpty()) {
+            return 0;
+        }
+        Selection selection = selection(usernames, filter);
+        selection.parameters.put("roles", names(roles));
+        return executeUpdate("DELETE ur FROM user_roles ur JOIN roles r ON r.id = ur.role_id JOIN users u ON u.id = ur.user_id"
+                + selection.joins + " WHERE " + selection.where("r.name IN (:roles)"), selection.parameters);
+    }
+
+    // JOIN y condiciones que seleccionan los usuarios de una operación masiva (alias 'u'). El filtro por rol es un
+    // JOIN y no un EXISTS: MySQL no admite una subconsulta sobre user_roles en un DELETE de esa misma tabla.
+    private static final class Selection {
+        final StringBuilder joins = new StringBuilder();
+        final List<String> conditions = new ArrayList<>();
+        final Map<String, Object> parameters = new HashMap<>();
+
+        String where(String condition) {
+            List<String> all = new ArrayList<>(conditions);
+            all.add(condition);
+            return String.join(" AND ", all);
+        }
+    }
+
+    private static Selection selection(Collection<String> usernames, UserFilter filter) {
+        Selection selection = new Selection();
+        if (usernames != null) {
+            selection.conditions.add("u.username IN (:usernames)");
+            selection.parameters.put("usernames", usernames);
+        }
+        if (filter.getSucursal() != null) {
+            selection.conditions.add("u.sucursal = :sucursal");
+            selection.parameters.put("sucursal", filter.getSucursal());
+        }
+        if (filter.getCiudad() != null) {
+            selection.conditions.add("u.ciudad = :ciudad");
+            selection.parameters.put("ciudad", filter.getCiudad());
+        }
+        if (filter.getCargo() != null) {
+            selection.conditions.add("u.cargo = :cargo");
+            selection.parameters.put("cargo", filter.getCargo());
+        }
+        if (filter.getBloqueado() != null) {
+            selection.conditions.add("u.bloqueado = :bloqueado");
+            selection.parameters.put("bloqueado", filter.getBloqueado());
+        }
+        if (filter.getRole() != null) {
+            selection.joins.append(" JOIN user_roles fur ON fur.user_id = u.id JOIN roles fr ON fr.id = fur.role_id AND fr.name = :filterRole");
+            selection.parameters.put("filterRole", filter.getRole().name());
+        }
+        if (selection.conditions.isEmpty() && selection.joins.isEmpty()) {
+            // Nunca una operación masiva sobre todo el directorio.
+            throw new IllegalArgumentException("Una operación masiva necesita una lista de usuarios o un filtro.");
+        }
+        return selection;
+    }
+
+    private int executeUpdate(String sql, Map<String, Object> parameters) {
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        // Solo toca 'users' y 'user_roles': Hibernate no necesita volcar ni invalidar nada más antes de ejecutarla.
+        query.addSynchronizedEntityClass(UserEntity.class);
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            query.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        return query.executeUpdate();
+    }
+
+    private static List<String> names(Set<ERole> roles) {
+        return roles.stream().map(ERole::name).toList();
+    }
+
+    // Columnas con tipo explícito y un record construido directamente por fila: sin entidades, sin contexto
+    // de persistencia y sin los proxies de las proyecciones por interfaz.
+    @SuppressWarnings("unchecked")
+    private NativeQuery<UserView> userViewQuery(String condition) {
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(USER_VIEW_SELECT + condition).unwrap(NativeQuery.class);
+        return query
+                .addScalar("id", StandardBasicTypes.LONG)
+                .addScalar("username", StandardBasicTypes.STRING)
+                .addScalar("email", StandardBasicTypes.STRING)
+                .addScalar("nombreCompleto", StandardBasicTypes.STRING)
+                .addScalar("sucursal", StandardBasicTypes.STRING)
+                .addScalar("telefono", StandardBasicTypes.STRING)
+                .addScalar("direccion", StandardBasicTypes.STRING)
+                .addScalar("celular", StandardBasicTypes.STRING)
+                .addScalar("ciudad", StandardBasicTypes.STRING)
+                .addScalar("cargo", StandardBasicTypes.STRING)
+                .addScalar("bloqueado", StandardBasicTypes.BOOLEAN)
+                .addScalar("fechaCaducidadPassword", StandardBasicTypes.LOCAL_DATE)
+                .addScalar("roles", StandardBasicTypes.STRING)
+                .setTupleTransformer((tuple, aliases) -> new UserView(
+                        (Long) tuple[0], (String) tuple[1], (String) tuple[2], (String) tuple[3], (String) tuple[4],
+                        (String) tuple[5], (String) tuple[6], (String) tuple[7], (String) tuple[8], (String) tuple[9],
+                        Boolean.TRUE.equals(tuple[10]), (LocalDate) tuple[11], (String) tuple[12]));
+    }
+
+    private <K extends Comparable<? super K>> List<Long> findIdsAfter(UserFilter filter, String key, K after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<UserEntity> user = query.from(UserEntity.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getSucursal() != null) {
+            predicates.add(cb.equal(user.get("sucursal"), filter.getSucursal()));
+        }
+        if (filter.getCiudad() != null) {
+            predicates.add(cb.equal(user.get("ciudad"), filter.getCiudad()));
+        }
+        if (filter.getCargo() != null) {
+            predicates.add(cb.equal(user.get("cargo"), filter.getCargo()));
+        }
+        if (filter.getBloqueado() != null) {
+            predicates.add(cb.equal(user.get("bloqueado"), filter.getBloqueado()));
+        }
+        if (filter.getRole() != null) {
+            // Un usuario tiene cada rol una sola vez: el JOIN no duplica filas.
+            Join<UserEntity, RoleEntity> role = user.join("roles");
+            predicates.add(cb.equal(role.get("name"), filter.getRole()));
+        }
+        if (after != null) {
+            predicates.add(cb.greaterThan(user.get(key), after));
+        }
+
+        query.select(user.get("id"))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.asc(user.get(key)));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
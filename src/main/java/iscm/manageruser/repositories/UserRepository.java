@@ -1,26 +1,143 @@
 package iscm.manageruser.repositories;
 
 import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.projections.GroupCountView;
+import iscm.manageruser.repositories.projections.PasswordExpiryCountView;
+import iscm.manageruser.repositories.projections.RoleCountView;
+import iscm.manageruser.repositories.projections.UserKeyView;
+import iscm.manageruser.repositories.projections.UserSearchView;
+import iscm.manageruser.repositories.projections.UserVersionView;
+import iscm.manageruser.repositories.projections.UsersVersionView;
+import iscm.manageruser.repositories.projections.UsernameView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends CrudRepository<UserEntity, Long> {
+public interface UserRepository extends CrudRepository<UserEntity, Long>, UserQueryRepository {
     // Devuelve Optional para manejar de forma segura el caso "no encontrado"
     Optional<UserEntity> findByUsername(String username);
 
-    @Query("SELECT u FROM UserEntity u LEFT JOIN FETCH u.old_passwords WHERE u.username = :username")
-    Optional<UserEntity> findByUsernameWithOldPasswords(String username);
-
     // Devuelve Optional y tiene el tipo correcto (UserEntity)
     Optional<UserEntity> findByEmail(String email);
 
-    // NUEVO METODO DE ALTO RENDIMIENTO:
-    @Query("SELECT u FROM UserEntity u LEFT JOIN FETCH u.roles")
-    List<UserEntity> findAllWithRoles();
     @Query("SELECT u FROM UserEntity u LEFT JOIN FETCH u.roles WHERE u.username = :username")
     Optional<UserEntity> findByUsernameWithRoles(String username);
+
+    /**
+     * Usuarios que ya usan alguno de los nombres de usuario o emails indicados: comprueba la unicidad de un
+     * alta masiva en una sola consulta, resuelta con los índices únicos de ambas columnas.
+     */
+    @Query("SELECT new iscm.manageruser.repositories.projections.UserKeyView(u.username, u.email) "
+            + "FROM UserEntity u WHERE u.username IN :usernames OR u.email IN :emails")
+    List<UserKeyView> findKeysByUsernameInOrEmailIn(Collection<String> usernames, Collection<String> emails);
+
+    /**
+     * Solo la versión y la fecha de modificación del usuario: responde a un GET condicional sin cargar
+     * la entidad ni sus roles.
+     */
+    @Query("SELECT new iscm.manageruser.repositories.projections.UserVersionView(u.version, u.updated_at) "
+            + "FROM UserEntity u WHERE u.username = :username")
+    Optional<UserVersionView> findVersionByUsername(String username);
+
+    /**
+     * Validador del listado de usuarios, resuelto con el índice (version, updated_at).
+     */
+    @Query("SELECT new iscm.manageruser.repositories.projections.UsersVersionView(COUNT(u), COALESCE(SUM(u.version), 0), "
+            + "COALESCE(MAX(u.version), 0), MAX(u.updated_at)) FROM UserEntity u")
+    UsersVersionView findUsersVersion();
+
+    /**
+     * Consultas de conciliación de las estadísticas del directorio: cada GROUP BY se resuelve recorriendo
+     * solo el índice de su columna (idx_users_sucursal, idx_users_ciudad, idx_user_roles_role_user...).
+     */
+    @Query("SELECT COUNT(u) FROM UserEntity u WHERE u.bloqueado = true")
+    long countLocked();
+
+    @Query("SELECT new iscm.manageruser.repositories.projections.GroupCountView(u.sucursal, COUNT(u)) "
+            + "FROM UserEntity u GROUP BY u.sucursal")
+    List<GroupCountView> countBySucursal();
+
+    @Query("SELECT new iscm.manageruser.repositories.projections.GroupCountView(u.ciudad, COUNT(u)) "
+            + "FROM UserEntity u GROUP BY u.ciudad")
+    List<GroupCountView> countByCiudad();
+
+    @Query("SELECT new iscm.manageruser.repositories.projections.RoleCountView(r.name, COUNT(u)) "
+            + "FROM UserEntity u JOIN u.roles r GROUP BY r.name")
+    List<RoleCountView> countByRole();
+
+    @Query("SELECT new iscm.manageruser.repositories.projections.PasswordExpiryCountView(u.fecha_caducidad_password, COUNT(u)) "
+            + "FROM UserEntity u WHERE u.fecha_caducidad_password IS NOT NULL GROUP BY u.fecha_caducidad_password")
+    List<PasswordExpiryCountView> countByPasswordExpiry();
+
+    /**
+     * Recorre en streaming (sin cargar entidades ni toda la lista en memoria) los nombres de usuario
+     * con id mayor que el indicado, en orden de id. Debe consumirse dentro de una transacción y cerrarse.
+     * Fetch size Integer.MIN_VALUE: el driver de MySQL entrega las filas una a una en lugar de todas a la vez.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT u.id AS id, u.username AS username FROM UserEntity u WHERE u.id > :afterId ORDER BY u.id")
+    Stream<UsernameView> streamUsernamesAfter(Long afterId);
+
+    /**
+     * Variante de streamUsernamesAfter para los usuarios creados o modificados desde el instante indicado,
+     * resuelta con el índice de updated_at.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT u.id AS id, u.username AS username FROM UserEntity u WHERE u.updated_at >= :since")
+    Stream<UsernameView> streamUsernamesModifiedSince(Instant since);
+
+    /**
+     * Recorre en streaming los campos que indexa el buscador de usuarios, sin cargar entidades.
+     * Debe consumirse dentro de una transacción y cerrarse.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT new iscm.manageruser.repositories.projections.UserSearchView(u.id, u.username, u.email, u.primer_nombre, "
+            + "u.segundo_nombre, u.apellido_paterno, u.apellido_materno, u.sucursal, u.ciudad, u.cargo) FROM UserEntity u")
+    Stream<UserSearchView> streamSearchViews();
+
+    /**
+     * Reinicia el contador de intentos fallidos con un UPDATE de una sola columna,
+     * sin cargar ni reescribir la entidad. Solo afecta a la fila si el contador no era ya 0.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserEntity u SET u.intentos_ingreso = 0 WHERE u.id = :id AND u.intentos_ingreso > 0")
+    int resetLoginAttempts(Long id);
+
+    /**
+     * Variante del reinicio de intentos que guarda además el hash re-codificado en el login.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserEntity u SET u.intentos_ingreso = 0, u.password = :password WHERE u.id = :id")
+    int resetLoginAttemptsAndUpdatePassword(Long id, String password);
+
+    /**
+     * Suma de forma atómica los intentos fallidos acumulados en memoria (un UPDATE por usuario y volcado).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserEntity u SET u.intentos_ingreso = u.intentos_ingreso + :increment WHERE u.id = :id")
+    int incrementLoginAttempts(Long id, int increment);
+
+    /**
+     * Bloquea la cuenta sumando en la misma sentencia los intentos fallidos aún no volcados.
+     * Incrementa la versión, porque 'bloqueado' forma parte de la respuesta del usuario (ETag).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserEntity u SET u.intentos_ingreso = u.intentos_ingreso + :increment, u.bloqueado = true, "
+            + "u.version = u.version + 1, u.updated_at = CURRENT_TIMESTAMP WHERE u.id = :id")
+    int lockAfterFailedAttempts(Long id, int increment);
 }
\ No newline at end of file
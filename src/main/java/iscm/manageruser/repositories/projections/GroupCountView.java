@@ -0,0 +1,8 @@
+package iscm.manageruser.repositories.projections;
+
+/**
+ * Número de usuarios con un mismo valor de una columna (sucursal, ciudad...), para conciliar los contadores
+ * de las estadísticas del directorio.
+ */
+public record GroupCountView(String key, Long count) {
+}
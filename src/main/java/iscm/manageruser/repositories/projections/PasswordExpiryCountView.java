@@ -0,0 +1,9 @@
+package iscm.manageruser.repositories.projections;
+
+import java.time.LocalDate;
+
+/**
+ * Número de usuarios cuya contraseña caduca en una fecha.
+ */
+public record PasswordExpiryCountView(LocalDate fechaCaducidadPassword, Long count) {
+}
@@ -0,0 +1,9 @@
+package iscm.manageruser.repositories.projections;
+
+import iscm.manageruser.model.ERole;
+
+/**
+ * Número de usuarios que tienen un rol.
+ */
+public record RoleCountView(ERole role, Long count) {
+}
@@ -0,0 +1,7 @@
+package iscm.manageruser.repositories.projections;
+
+/**
+ * Claves únicas de un usuario, para comprobar la unicidad de un alta masiva.
+ */
+public record UserKeyView(String username, String email) {
+}
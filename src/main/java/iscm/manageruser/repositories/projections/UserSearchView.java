@@ -0,0 +1,25 @@
+package iscm.manageruser.repositories.projections;
+
+import iscm.manageruser.model.UserEntity;
+
+/**
+ * Campos de un usuario que indexa el buscador en memoria.
+ */
+public record UserSearchView(
+        Long id,
+        String username,
+        String email,
+        String primerNombre,
+        String segundoNombre,
+        String apellidoPaterno,
+        String apellidoMaterno,
+        String sucursal,
+        String ciudad,
+        String cargo) {
+
+    public static UserSearchView of(UserEntity user) {
+        return new UserSearchView(user.getId(), user.getUsername(), user.getEmail(), user.getPrimer_nombre(),
+                user.getSegundo_nombre(), user.getApellido_paterno(), user.getApellido_materno(),
+                user.getSucursal(), user.getCiudad(), user.getCargo());
+    }
+}
@@ -0,0 +1,18 @@
+package iscm.manageruser.repositories.projections;
+
+import iscm.manageruser.model.ERole;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Campos de un usuario que cuentan en las estadísticas del directorio. Se toma antes y después de
+ * modificarlo para aplicar a los contadores solo la diferencia.
+ */
+public record UserStatsView(
+        String sucursal,
+        String ciudad,
+        boolean bloqueado,
+        LocalDate fechaCaducidadPassword,
+        Set<ERole> roles) {
+}
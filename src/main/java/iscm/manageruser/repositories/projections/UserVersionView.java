@@ -0,0 +1,9 @@
+package iscm.manageruser.repositories.projections;
+
+import java.time.Instant;
+
+/**
+ * Versión y fecha de última modificación de un usuario, para las peticiones condicionales.
+ */
+public record UserVersionView(Long version, Instant updatedAt) {
+}
@@ -0,0 +1,24 @@
+package iscm.manageruser.repositories.projections;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección de solo lectura con las columnas que necesita UserResponseDTO.
+ * El nombre completo se compone en la consulta y los roles llegan agregados en una sola columna
+ * separada por comas, de modo que cada usuario es una única fila sin entidades ni colecciones.
+ */
+public record UserView(
+        Long id,
+        String username,
+        String email,
+        String nombreCompleto,
+        String sucursal,
+        String telefono,
+        String direccion,
+        String celular,
+        String ciudad,
+        String cargo,
+        boolean bloqueado,
+        LocalDate fechaCaducidadPassword,
+        String roles) {
+}
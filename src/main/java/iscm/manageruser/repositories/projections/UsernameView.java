@@ -0,0 +1,11 @@
+package iscm.manageruser.repositories.projections;
+
+/**
+ * Proyección mínima de un usuario: solo su id y su nombre de usuario.
+ */
+public interface UsernameView {
+
+    Long getId();
+
+    String getUsername();
+}
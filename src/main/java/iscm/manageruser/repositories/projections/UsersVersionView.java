@@ -0,0 +1,10 @@
+package iscm.manageruser.repositories.projections;
+
+import java.time.Instant;
+
+/**
+ * Validador del directorio completo: cualquier alta suma una fila y cualquier modificación incrementa
+ * la versión de un usuario, así que el par (número de usuarios, suma de versiones) cambia con cada cambio.
+ */
+public record UsersVersionView(Long count, Long versionSum, Long maxVersion, Instant lastModified) {
+}
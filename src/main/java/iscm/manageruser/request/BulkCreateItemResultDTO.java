@@ -0,0 +1,30 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Resultado de un elemento de un alta masiva de usuarios.")
+public class BulkCreateItemResultDTO {
+
+    @Schema(description = "Posición del elemento en la lista enviada (desde 0).", example = "0")
+    private int index;
+
+    @Schema(description = "Nombre de usuario del elemento.", example = "jperez")
+    private String username;
+
+    @Schema(description = "Indica si el usuario se creó.", example = "true")
+    private boolean created;
+
+    @Schema(description = "Usuario creado. Nulo si el elemento tiene errores.")
+    private UserResponseDTO user;
+
+    @Schema(description = "Errores de validación del elemento. Vacío si se creó.")
+    private List<String> errors;
+}
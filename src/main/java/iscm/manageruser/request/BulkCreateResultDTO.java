@@ -0,0 +1,27 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Resultado de un alta masiva de usuarios: los elementos válidos se crean y los demás se informan con sus errores.")
+public class BulkCreateResultDTO {
+
+    @Schema(description = "Número de elementos recibidos.", example = "250")
+    private int total;
+
+    @Schema(description = "Usuarios creados.", example = "248")
+    private int created;
+
+    @Schema(description = "Elementos rechazados.", example = "2")
+    private int failed;
+
+    @Schema(description = "Resultado de cada elemento, en el orden recibido.")
+    private List<BulkCreateItemResultDTO> items;
+}
@@ -0,0 +1,19 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Schema(description = "Roles que se asignan y se quitan a los usuarios seleccionados.")
+public class BulkRoleChangeDTO extends UserSelectionDTO {
+
+    @Schema(description = "Roles que se asignan a quien aún no los tiene.", example = "[\"OFICIAL\"]")
+    private List<String> addRoles;
+
+    @Schema(description = "Roles que se quitan a quien los tiene.", example = "[\"ASISTENTE\"]")
+    private List<String> removeRoles;
+}
@@ -0,0 +1,22 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Filas afectadas por una operación masiva.")
+public class BulkUpdateResultDTO {
+
+    @Schema(description = "Usuarios modificados (los que ya estaban en el estado pedido no cuentan).", example = "42")
+    private int usersUpdated;
+
+    @Schema(description = "Asignaciones de rol añadidas.", example = "42")
+    private int rolesAdded;
+
+    @Schema(description = "Asignaciones de rol quitadas.", example = "40")
+    private int rolesRemoved;
+}
@@ -1,6 +1,7 @@
 package iscm.manageruser.request;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import iscm.manageruser.validation.ValidPassword;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
@@ -31,6 +32,7 @@ public class CreateUserDTO {
                     requiredMode = Schema.RequiredMode.REQUIRED
             )
     @NotBlank
+    @ValidPassword
     private String password;
 
     @Schema
@@ -0,0 +1,55 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Estado de una importación de usuarios desde un archivo CSV o XLSX.")
+public class ImportJobDTO {
+
+    @Schema(description = "Identificador de la importación, para consultar su estado.", example = "5b0c7c1e-1d7e-4f0a-9a57-2f4a3c1b8e61")
+    private String id;
+
+    @Schema(description = "Nombre del archivo subido.", example = "sucursal-norte.xlsx")
+    private String fileName;
+
+    @Schema(description = "Estado: EN_COLA, EN_PROCESO, COMPLETADO o FALLIDO.", example = "EN_PROCESO")
+    private String status;
+
+    @Schema(description = "Filas procesadas hasta ahora.", example = "1200")
+    private long rowsProcessed;
+
+    @Schema(description = "Usuarios creados.", example = "1195")
+    private long rowsCreated;
+
+    @Schema(description = "Filas rechazadas.", example = "5")
+    private long rowsFailed;
+
+    @Schema(description = "Filas procesadas por segundo desde el inicio.", example = "85.3")
+    private double rowsPerSecond;
+
+    @Schema(description = "Momento en que se recibió el archivo.")
+    private Instant submittedAt;
+
+    @Schema(description = "Inicio del procesamiento. Nulo mientras está en cola.")
+    private Instant startedAt;
+
+    @Schema(description = "Fin del procesamiento. Nulo mientras no ha terminado.")
+    private Instant finishedAt;
+
+    @Schema(description = "Motivo por el que la importación se detuvo, si falló. Las filas de lotes anteriores ya están creadas.")
+    private String error;
+
+    @Schema(description = "Filas rechazadas, hasta users.import.max-reported-errors.")
+    private List<ImportRowErrorDTO> rowErrors;
+
+    @Schema(description = "Indica si hay más filas rechazadas de las listadas en 'rowErrors'.", example = "false")
+    private boolean rowErrorsTruncated;
+}
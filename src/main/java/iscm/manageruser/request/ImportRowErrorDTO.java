@@ -0,0 +1,24 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Fila rechazada de una importación de usuarios.")
+public class ImportRowErrorDTO {
+
+    @Schema(description = "Número de fila en el archivo: la cabecera es la fila 1 y las líneas en blanco no cuentan.", example = "27")
+    private long row;
+
+    @Schema(description = "Nombre de usuario de la fila.", example = "jperez")
+    private String username;
+
+    @Schema(description = "Motivos del rechazo.")
+    private List<String> errors;
+}
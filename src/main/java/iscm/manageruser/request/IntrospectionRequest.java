@@ -0,0 +1,19 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) con el lote de tokens a inspeccionar en una sola petición.
+ *
+ * @param tokens Los tokens de acceso (JWT compactos, sin el prefijo "Bearer ").
+ */
+@Schema(description = "Lote de tokens de acceso a inspeccionar.")
+public record IntrospectionRequest(
+        @Schema(description = "Tokens JWT a inspeccionar, sin el prefijo 'Bearer '.", example = "[\"eyJ...\", \"eyJ...\"]")
+        @NotEmpty(message = "Debe enviar al menos un token")
+        List<String> tokens
+) {
+}
@@ -0,0 +1,43 @@
+package iscm.manageruser.request;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Resultado de la introspección de un token, con los campos de RFC 7662.
+ * Para un token inactivo (inválido, expirado o revocado) solo se devuelve "active": false.
+ */
+@AllArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Resultado de la introspección de un token (RFC 7662).")
+public class IntrospectionResponseDTO {
+
+    private static final IntrospectionResponseDTO INACTIVE = new IntrospectionResponseDTO(false, null, null, null, null, null);
+
+    @Schema(description = "Indica si el token es válido, no ha expirado y no ha sido revocado.", example = "true")
+    private boolean active;
+
+    @Schema(description = "Usuario (subject) del token.", example = "jperez")
+    private String sub;
+
+    @Schema(description = "Roles del usuario.", example = "[\"ADMIN\", \"SISTEMAS\"]")
+    private List<String> roles;
+
+    @Schema(description = "Expiración del token, en segundos desde epoch.", example = "1760000000")
+    private Long exp;
+
+    @Schema(description = "Emisión del token, en segundos desde epoch.", example = "1759999100")
+    private Long iat;
+
+    @Schema(description = "Identificador único del token.", example = "3f1c2a9e-7d2b-4c55-9a0e-8a1b2c3d4e5f")
+    private String jti;
+
+    public static IntrospectionResponseDTO inactive() {
+        return INACTIVE;
+    }
+}
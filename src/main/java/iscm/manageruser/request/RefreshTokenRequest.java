@@ -0,0 +1,14 @@
+package iscm.manageruser.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Data Transfer Object (DTO) con el refresh token que se canjea por un nuevo token de acceso.
+ *
+ * @param refreshToken El refresh token opaco recibido en el login o en la última renovación.
+ */
+public record RefreshTokenRequest(
+        @NotBlank(message = "El refresh token no puede estar vacío")
+        String refreshToken
+) {
+}
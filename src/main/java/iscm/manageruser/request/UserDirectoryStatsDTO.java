@@ -0,0 +1,43 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.Map;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Estadísticas agregadas del directorio de usuarios.")
+public class UserDirectoryStatsDTO {
+
+    @Schema(description = "Número total de usuarios.", example = "1250")
+    private long total;
+
+    @Schema(description = "Usuarios bloqueados.", example = "12")
+    private long bloqueados;
+
+    @Schema(description = "Usuarios por sucursal.")
+    private Map<String, Long> porSucursal;
+
+    @Schema(description = "Usuarios por ciudad.")
+    private Map<String, Long> porCiudad;
+
+    @Schema(description = "Usuarios por rol. Un usuario con varios roles cuenta en cada uno.")
+    private Map<String, Long> porRol;
+
+    @Schema(description = "Usuarios con la contraseña ya caducada.", example = "40")
+    private long passwordsCaducadas;
+
+    @Schema(description = "Usuarios cuya contraseña caduca entre hoy y los próximos 'dias' días.", example = "85")
+    private long passwordsPorCaducar;
+
+    @Schema(description = "Días del periodo de 'passwordsPorCaducar'.", example = "30")
+    private int dias;
+
+    @Schema(description = "Última conciliación de los contadores con la BD.")
+    private Instant conciliadoEn;
+}
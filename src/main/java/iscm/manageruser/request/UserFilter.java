@@ -0,0 +1,23 @@
+package iscm.manageruser.request;
+
+import iscm.manageruser.model.ERole;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Filtros del listado de usuarios. Los campos nulos no filtran.
+ */
+@Getter
+@Builder
+public class UserFilter {
+
+    private String sucursal;
+
+    private String ciudad;
+
+    private String cargo;
+
+    private Boolean bloqueado;
+
+    private ERole role;
+}
@@ -0,0 +1,27 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Página de usuarios obtenida con paginación por cursor (keyset).")
+public class UserPageDTO {
+
+    @Schema(description = "Usuarios de la página, en el orden solicitado.")
+    private List<UserResponseDTO> content;
+
+    @Schema(description = "Número máximo de usuarios por página.", example = "50")
+    private int size;
+
+    @Schema(description = "Indica si hay más usuarios después de esta página.", example = "true")
+    private boolean hasMore;
+
+    @Schema(description = "Cursor opaco para pedir la página siguiente (parámetro 'cursor'). Nulo en la última página.", example = "aWQ6NTA")
+    private String nextCursor;
+}
@@ -0,0 +1,37 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+@Getter
+@Setter
+@Schema(description = "Resultado de la búsqueda de usuarios: datos de identificación y puntuación de la coincidencia.")
+public class UserSearchResultDTO {
+
+    @Schema(description = "ID único del usuario en la base de datos.", example = "1")
+    private Long id;
+
+    @Schema(description = "Nombre de usuario.", example = "jperez")
+    private String username;
+
+    @Schema(description = "Nombre completo del usuario.", example = "Juan Carlos Perez Mamani")
+    private String nombreCompleto;
+
+    @Schema(description = "Correo electrónico del usuario.", example = "juan.perez@iscm.com")
+    private String email;
+
+    @Schema(description = "Cargo del usuario.", example = "Atención al Cliente")
+    private String cargo;
+
+    @Schema(description = "Punto o agencia del usuario.", example = "Central")
+    private String sucursal;
+
+    @Schema(description = "Ciudad del usuario.", example = "La Paz")
+    private String ciudad;
+
+    @Schema(description = "Puntuación de la coincidencia; mayor es mejor.", example = "8")
+    private int score;
+}
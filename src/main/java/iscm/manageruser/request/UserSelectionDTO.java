@@ -0,0 +1,26 @@
+package iscm.manageruser.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Schema(description = "Usuarios a los que se aplica una operación masiva: una lista de nombres de usuario, un filtro o ambos "
+        + "(se combinan con AND). Se exige al menos uno de ellos para no modificar nunca todo el directorio por error.")
+public class UserSelectionDTO {
+
+    @Schema(description = "Nombres de usuario (como máximo users.bulk.max-items).", example = "[\"jperez\", \"mpena\"]")
+    private List<String> usernames;
+
+    @Schema(description = "Solo los usuarios de este punto o agencia.", example = "Central")
+    private String sucursal;
+
+    @Schema(description = "Solo los usuarios de esta ciudad.", example = "La Paz")
+    private String ciudad;
+
+    @Schema(description = "Solo los usuarios que tienen este rol.", example = "ASISTENTE")
+    private String role;
+}
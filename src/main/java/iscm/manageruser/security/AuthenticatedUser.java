@@ -0,0 +1,45 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.model.UserEntity;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal de Spring Security que conserva el UserEntity cargado durante la autenticación
+ * (con sus roles), para que el login no tenga que volver a consultarlo al emitir los tokens.
+ * Si el hash de la contraseña se re-codificó al autenticar, lo lleva también, para escribirlo
+ * en la misma actualización con la que el login reinicia los intentos fallidos.
+ */
+public class AuthenticatedUser extends User {
+
+    private final transient UserEntity userEntity;
+    private transient String upgradedPassword;
+
+    public AuthenticatedUser(UserEntity userEntity, boolean credentialsNonExpired,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(userEntity.getUsername(), userEntity.getPassword(), true, true,
+                credentialsNonExpired, !userEntity.isBloqueado(), authorities);
+        this.userEntity = userEntity;
+    }
+
+    /**
+     * Anota el hash re-codificado pendiente de guardar. Se hace sobre la misma instancia porque
+     * Spring Security conserva el principal original en la autenticación resultante.
+     */
+    public void setUpgradedPassword(String encodedPassword) {
+        this.upgradedPassword = encodedPassword;
+    }
+
+    public UserEntity getUserEntity() {
+        return userEntity;
+    }
+
+    /**
+     * Nuevo hash de la contraseña si hay que guardarlo, o null si el actual sigue vigente.
+     */
+    public String getUpgradedPassword() {
+        return upgradedPassword;
+    }
+}
@@ -0,0 +1,108 @@
+package iscm.manageruser.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PasswordEncoder que ejecuta el hash y la verificación en el {@link PasswordHashingExecutor}
+ * en lugar de en el hilo de la petición. upgradeEncoding solo inspecciona el prefijo y se queda en el hilo.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor hashingExecutor;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor hashingExecutor) {
+        this.delegate = delegate;
+        this.hashingExecutor = hashingExecutor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hashingExecutor.execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hashingExecutor.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Compara la contraseña con varios hashes en paralelo, repartidos por los hilos del pool.
+     * Como en encodeAll, nunca hay en vuelo más comparaciones que hilos; en cuanto una coincide no se encolan más.
+     * Si algo falla, las comparaciones aún en cola se cancelan: la petición ya no va a usar su resultado.
+     * @return la posición de un hash que coincide, o -1 si no coincide ninguno.
+     */
+    public int indexOfMatch(CharSequence rawPassword, List<String> encodedPasswords) {
+        int window = hashingExecutor.parallelism();
+        AtomicInteger match = new AtomicInteger(-1);
+        List<CompletableFuture<?>> comparisons = new ArrayList<>(encodedPasswords.size());
+        try {
+            for (int i = 0; i < encodedPasswords.size(); i++) {
+                if (i >= window) {
+                    join(comparisons.get(i - window));
+                }
+                if (match.get() >= 0) {
+                    break;
+                }
+                int index = i;
+                comparisons.add(hashingExecutor.submit(() -> {
+                    if (match.get() < 0 && delegate.matches(rawPassword, encodedPasswords.get(index))) {
+                        match.compareAndSet(-1, index);
+                    }
+                    return null;
+                }));
+            }
+            for (CompletableFuture<?> comparison : comparisons) {
+                join(comparison);
+            }
+        } catch (RuntimeException e) {
+            comparisons.forEach(comparison -> comparison.cancel(false));
+            throw e;
+        }
+        return match.get();
+    }
+
+    // Como PasswordHashingExecutor.execute: el fallo de la operación llega tal cual, no envuelto en CompletionException.
+    private static void join(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Codifica varias contraseñas en paralelo, repartidas por los hilos del pool, en el mismo orden.
+     * Nunca hay en vuelo más hashes que hilos, así que un lote grande no llena la cola que comparten los logins.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        int window = hashingExecutor.parallelism();
+        List<CompletableFuture<String>> hashes = new ArrayList<>(rawPasswords.size());
+        for (int i = 0; i < rawPasswords.size(); i++) {
+            if (i >= window) {
+                hashes.get(i - window).join();
+            }
+            CharSequence rawPassword = rawPasswords.get(i);
+            hashes.add(hashingExecutor.submit(() -> delegate.encode(rawPassword)));
+        }
+        List<String> encoded = new ArrayList<>(hashes.size());
+        for (CompletableFuture<String> hash : hashes) {
+            encoded.add(hash.join());
+        }
+        return encoded;
+    }
+}
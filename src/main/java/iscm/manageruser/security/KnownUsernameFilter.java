@@ -0,0 +1,193 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UsernameView;
+import iscm.manageruser.utils.BloomFilter;
+import iscm.manageruser.utils.TextNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Filtro de Bloom con los nombres de usuario existentes, para que un login con un usuario que
+ * definitivamente no existe no consulte la BD. Se construye al arrancar con una consulta en streaming
+ * que solo lee (id, username), se actualiza al crear usuarios en este nodo y se sincroniza
+ * periódicamente con los creados en otros nodos (modificados desde la sincronización anterior).
+ * No se usa el id: cada nodo reserva bloques de ids por adelantado, así que un id menor puede
+ * confirmarse mucho después que uno mayor.
+ * Hasta que termina la construcción responde "quizá" a todo, así que nunca rechaza un usuario válido.
+ * <p>
+ * Un usuario creado en otro nodo no está en el filtro hasta la siguiente sincronización. Para que
+ * mientras tanto no reciba "credenciales incorrectas", ante un "no existe" se sincroniza en el momento
+ * (una sola a la vez, y como mucho una cada {@code recheck-interval}) y se vuelve a mirar. Queda una
+ * ventana acotada por ese intervalo (1 s por defecto): si el alta se confirma en otro nodo justo después
+ * de una sincronización de este, su login puede rechazarse hasta que pase el intervalo. Con nombres
+ * inexistentes a ritmo alto la BD solo recibe esa consulta incremental, no una por intento.
+ */
+@Component
+@Slf4j
+public class KnownUsernameFilter {
+
+    // Al sincronizar se vuelve a leer un margen ya visto: cubre la diferencia de reloj entre nodos y las
+    // transacciones que se confirman después de fijar su updated_at. Volver a añadir un nombre no tiene efecto.
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+    private final long recheckIntervalMillis;
+    private final Object syncLock = new Object();
+
+    private volatile BloomFilter bloomFilter;
+    private volatile boolean ready;
+    private volatile Instant lastSyncedAt;
+    // Altas registradas mientras se construye un filtro nuevo, para reaplicarlas sobre él
+    private volatile Queue<String> addedDuringBuild;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder skippedLookups = new LongAdder();
+    private final LongAdder recheckedLookups = new LongAdder();
+
+    public KnownUsernameFilter(UserRepository userRepository, PlatformTransactionManager transactionManager,
+                               @Value("${security.login.username-filter.expected-users:100000}") long expectedUsers,
+                               @Value("${security.login.username-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${security.login.username-filter.recheck-interval:1000}") long recheckIntervalMillis) {
+        this.userRepository = userRepository;
+        // Se une a la transacción del login si la hay: abrir otra necesitaría una segunda conexión por hilo
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.recheckIntervalMillis = recheckIntervalMillis;
+        this.bloomFilter = new BloomFilter(expectedUsers, falsePositiveRate);
+    }
+
+    /**
+     * Construye el filtro con todos los usuarios existentes, una vez que la aplicación (y el usuario
+     * administrador inicial) está lista.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        long start = System.currentTimeMillis();
+        Instant syncStart = Instant.now();
+        addedDuringBuild = new ConcurrentLinkedQueue<>();
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedUsers, 2 * userRepository.count()), falsePositiveRate);
+        try (Stream<UsernameView> usernames = userRepository.streamUsernamesAfter(0L)) {
+            for (UsernameView view : (Iterable<UsernameView>) usernames::iterator) {
+                rebuilt.put(normalize(view.getUsername()));
+            }
+        }
+        bloomFilter = rebuilt;
+        Queue<String> pending = addedDuringBuild;
+        addedDuringBuild = null;
+        pending.forEach(rebuilt::put);
+        lastSyncedAt = syncStart;
+        ready = true;
+        log.info("Filtro de usuarios existentes construido: {} usuarios, {} KB, en {} ms.",
+                rebuilt.approximateElementCount(), rebuilt.memoryBytes() / 1024, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Incorpora los usuarios creados en otros nodos desde la última sincronización.
+     */
+    @Scheduled(fixedDelayString = "${security.login.username-filter.sync-interval:10000}",
+            initialDelayString = "${security.login.username-filter.sync-interval:10000}")
+    public void synchronize() {
+        synchronizeIfOlderThan(0);
+    }
+
+    /**
+     * Sincroniza si la última sincronización tiene al menos {@code minAgeMillis}. Si otro hilo está
+     * sincronizando espera a que termine y, normalmente, ya no hace falta repetirla.
+     */
+    private void synchronizeIfOlderThan(long minAgeMillis) {
+        synchronized (syncLock) {
+            Instant syncStart = Instant.now();
+            if (!ready || lastSyncedAt.isAfter(syncStart.minusMillis(minAgeMillis))) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<UsernameView> usernames = userRepository.streamUsernamesModifiedSince(lastSyncedAt.minus(SYNC_OVERLAP))) {
+                    for (UsernameView view : (Iterable<UsernameView>) usernames::iterator) {
+                        bloomFilter.put(normalize(view.getUsername()));
+                    }
+                }
+            });
+            lastSyncedAt = syncStart;
+        }
+    }
+
+    /**
+     * false si el usuario definitivamente no existe; true si quizá existe (o si el filtro aún no está listo).
+     */
+    public boolean mightExist(String username) {
+        lookups.increment();
+        if (!ready || username == null) {
+            return true;
+        }
+        String normalized = normalize(username);
+        if (bloomFilter.mightContain(normalized)) {
+            return true;
+        }
+        // Puede haberse creado en otro nodo después de la última sincronización
+        synchronizeIfOlderThan(recheckIntervalMillis);
+        if (bloomFilter.mightContain(normalized)) {
+            recheckedLookups.increment();
+            return true;
+        }
+        skippedLookups.increment();
+        return false;
+    }
+
+    /**
+     * Registra un usuario recién creado en este nodo.
+     */
+    public void add(String username) {
+        String normalized = normalize(username);
+        // Primero la cola de la construcción en curso y después el filtro vigente: si la cola ya se reaplicó,
+        // el filtro leído aquí es el nuevo.
+        Queue<String> pending = addedDuringBuild;
+        if (pending != null) {
+            pending.add(normalized);
+        }
+        bloomFilter.put(normalized);
+    }
+
+    public Map<String, Object> stats() {
+        BloomFilter filter = bloomFilter;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("lookups", lookups.sum());
+        stats.put("skippedLookups", skippedLookups.sum());
+        stats.put("recheckedLookups", recheckedLookups.sum());
+        stats.put("approximateUsers", filter.approximateElementCount());
+        stats.put("expectedFalsePositiveRate", filter.expectedFalsePositiveRate());
+        stats.put("memoryBytes", filter.memoryBytes());
+        stats.put("bitSize", filter.bitSize());
+        stats.put("hashCount", filter.hashCount());
+        return stats;
+    }
+
+    // La comparación de la BD ignora mayúsculas, acentos y espacios finales: la clave del filtro también,
+    // para que dos nombres iguales para MySQL nunca den un falso negativo.
+    private static String normalize(String username) {
+        return TextNormalizer.fold(username.stripTrailing());
+    }
+}
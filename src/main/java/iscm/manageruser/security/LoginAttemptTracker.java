@@ -0,0 +1,216 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.security.jwt.TokenRevocationStore;
+import iscm.manageruser.service.UserDirectoryStats;
+import iscm.manageruser.service.UserResponseCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador en memoria de intentos de login fallidos por usuario.
+ * Cada fallo es un compareAndSet sobre un contador por usuario, sin leer ni escribir la fila de 'users':
+ * solo un hilo puede llevar el contador al máximo, así que la regla de bloqueo se cumple exactamente
+ * aunque lleguen muchos intentos a la vez. Los incrementos se acumulan y se vuelcan periódicamente
+ * con un único UPDATE atómico por usuario; el bloqueo, en cambio, se escribe en el momento.
+ * El estado se siembra desde el UserEntity cargado al autenticar y se descarta cuando el usuario
+ * lleva un tiempo sin intentos (ventana deslizante), dejando a la BD como fuente de verdad.
+ */
+@Component
+@Slf4j
+public class LoginAttemptTracker {
+
+    private final UserRepository userRepository;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final UserResponseCache userResponseCache;
+    private final UserDirectoryStats userDirectoryStats;
+    private final int maxAttempts;
+    private final long windowMillis;
+    private final ConcurrentHashMap<String, AttemptState> states = new ConcurrentHashMap<>();
+
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder ignoredFailures = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+    private final LongAdder flushedUpdates = new LongAdder();
+
+    private static final class AttemptState {
+        final Long userId;
+        // Fallos consecutivos desde el último login correcto (incluye los ya volcados a la BD)
+        final AtomicInteger failures;
+        // Incrementos aún no escritos en la BD
+        final AtomicInteger pending = new AtomicInteger();
+        volatile boolean locked;
+        volatile long lastActivity = System.currentTimeMillis();
+
+        AttemptState(Long userId, int failures, boolean locked) {
+            this.userId = userId;
+            this.failures = new AtomicInteger(failures);
+            this.locked = locked;
+        }
+    }
+
+    public LoginAttemptTracker(UserRepository userRepository, TokenRevocationStore tokenRevocationStore,
+                               UserResponseCache userResponseCache, UserDirectoryStats userDirectoryStats,
+                               @Value("${security.login.max-attempts:3}") int maxAttempts,
+                               @Value("${security.login.attempt-window:900000}") long windowMillis) {
+        this.userRepository = userRepository;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.userResponseCache = userResponseCache;
+        this.userDirectoryStats = userDirectoryStats;
+        this.maxAttempts = maxAttempts;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Registra el estado del usuario recién leído de la BD. Si ya hay estado en memoria se conserva,
+     * porque puede tener incrementos aún no volcados; la excepción es un usuario bloqueado en memoria
+     * que la BD muestra desbloqueado y sin intentos, que solo puede deberse a un desbloqueo explícito.
+     */
+    public void seed(UserEntity userEntity) {
+        states.compute(userEntity.getUsername(), (username, existing) -> {
+            if (existing == null || (existing.locked && !userEntity.isBloqueado()
+                    && userEntity.getIntentos_ingreso() == 0 && existing.pending.get() == 0)) {
+                return new AttemptState(userEntity.getId(), userEntity.getIntentos_ingreso(), userEntity.isBloqueado());
+            }
+            existing.lastActivity = System.currentTimeMillis();
+            return existing;
+        });
+    }
+
+    /**
+     * Registra un intento fallido. Los usuarios que no se sembraron (no existen) o que ya están
+     * bloqueados se ignoran, igual que antes.
+     */
+    public void recordFailure(String username) {
+        AttemptState state = states.get(username);
+        if (state == null) {
+            ignoredFailures.increment();
+            return;
+        }
+        state.lastActivity = System.currentTimeMillis();
+        int current;
+        do {
+            current = state.failures.get();
+            if (state.locked || current >= maxAttempts) {
+                ignoredFailures.increment();
+                return;
+            }
+        } while (!state.failures.compareAndSet(current, current + 1));
+
+        failures.increment();
+        state.pending.incrementAndGet();
+        if (current + 1 >= maxAttempts) {
+            lock(username, state);
+        }
+    }
+
+    /**
+     * Registra un login correcto y reinicia el contador (en la BD solo si no era ya 0).
+     * @param upgradedPassword Hash re-codificado a guardar en la misma sentencia, o null.
+     * @return false si el usuario quedó bloqueado mientras se verificaba su contraseña.
+     */
+    public boolean recordSuccess(UserEntity userEntity, String upgradedPassword) {
+        AttemptState state = states.get(userEntity.getUsername());
+        if (state == null) {
+            writeSuccess(userEntity.getId(), userEntity.getIntentos_ingreso(), upgradedPassword);
+        } else {
+            synchronized (state) {
+                if (state.locked) {
+                    return false;
+                }
+                int previous = state.failures.getAndSet(0);
+                state.pending.set(0);
+                writeSuccess(userEntity.getId(), Math.max(previous, userEntity.getIntentos_ingreso()), upgradedPassword);
+            }
+        }
+        userEntity.setIntentos_ingreso(0);
+        if (upgradedPassword != null) {
+            userEntity.setPassword(upgradedPassword);
+        }
+        return true;
+    }
+
+    /**
+     * Olvida el estado en memoria del usuario (por ejemplo, tras desbloquearlo un administrador).
+     */
+    public void reset(String username) {
+        states.remove(username);
+    }
+
+    /**
+     * Vuelca los incrementos acumulados y descarta los usuarios sin intentos dentro de la ventana.
+     */
+    @Scheduled(fixedDelayString = "${security.login.flush-interval:1000}")
+    public void flush() {
+        long idleSince = System.currentTimeMillis() - windowMillis;
+        states.forEach((username, state) -> {
+            if (state.lastActivity < idleSince) {
+                states.remove(username, state);
+            }
+            // También tras descartarlo: un fallo concurrente pudo dejar un incremento pendiente.
+            if (state.pending.get() > 0) {
+                flushPending(state);
+            }
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("failures", failures.sum());
+        stats.put("ignoredFailures", ignoredFailures.sum());
+        stats.put("lockouts", lockouts.sum());
+        stats.put("flushedUpdates", flushedUpdates.sum());
+        stats.put("trackedUsers", states.size());
+        stats.put("maxAttempts", maxAttempts);
+        return stats;
+    }
+
+    // El bloqueo se escribe en el momento junto con los incrementos pendientes, en un único UPDATE.
+    private void lock(String username, AttemptState state) {
+        state.locked = true;
+        synchronized (state) {
+            userRepository.lockAfterFailedAttempts(state.userId, state.pending.getAndSet(0));
+            flushedUpdates.increment();
+        }
+        lockouts.increment();
+        userResponseCache.invalidate(username);
+        userDirectoryStats.recordLock();
+        log.warn("Usuario '{}' ha sido bloqueado por exceso de intentos de login.", username);
+        // Un usuario bloqueado no debe poder seguir usando los tokens que ya tenía.
+        tokenRevocationStore.revokeAllForUser(username);
+    }
+
+    private void flushPending(AttemptState state) {
+        synchronized (state) {
+            int increment = state.pending.getAndSet(0);
+            if (increment > 0) {
+                try {
+                    userRepository.incrementLoginAttempts(state.userId, increment);
+                    flushedUpdates.increment();
+                } catch (RuntimeException e) {
+                    // Se reintenta en el siguiente volcado
+                    state.pending.addAndGet(increment);
+                    log.error("No se pudieron volcar los intentos fallidos del usuario {}: {}", state.userId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Un único UPDATE como mucho: reinicio de intentos, re-codificación del hash, o ambos a la vez.
+    private void writeSuccess(Long userId, int failures, String upgradedPassword) {
+        if (upgradedPassword != null) {
+            userRepository.resetLoginAttemptsAndUpdatePassword(userId, upgradedPassword);
+        } else if (failures > 0) {
+            userRepository.resetLoginAttempts(userId);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.utils.TokenBucketLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Límites de tasa del login, por IP de origen y por nombre de usuario intentado. Se comprueban antes
+ * de verificar la contraseña, de modo que una petición rechazada no cuesta ningún hash ni consulta.
+ */
+@Component
+public class LoginRateLimiter {
+
+    // Los nombres de usuario tienen como mucho 30 caracteres; se recorta para acotar la memoria por clave.
+    private static final int MAX_USERNAME_KEY_LENGTH = 64;
+
+    private final TokenBucketLimiter ipLimiter;
+    private final TokenBucketLimiter usernameLimiter;
+
+    public LoginRateLimiter(@Value("${security.login.rate-limit.ip.burst:20}") int ipBurst,
+                            @Value("${security.login.rate-limit.ip.per-minute:30}") int ipPerMinute,
+                            @Value("${security.login.rate-limit.username.burst:5}") int usernameBurst,
+                            @Value("${security.login.rate-limit.username.per-minute:6}") int usernamePerMinute,
+                            @Value("${security.login.rate-limit.max-keys:100000}") int maxKeys) {
+        this.ipLimiter = new TokenBucketLimiter(ipBurst, ipPerMinute, maxKeys);
+        this.usernameLimiter = new TokenBucketLimiter(usernameBurst, usernamePerMinute, maxKeys);
+    }
+
+    /**
+     * @return 0 si se permite, o los segundos a esperar (Retry-After).
+     */
+    public long tryAcquireForIp(String ip) {
+        return toRetryAfterSeconds(ipLimiter.tryAcquire(ip));
+    }
+
+    /**
+     * @return 0 si se permite, o los segundos a esperar (Retry-After).
+     */
+    public long tryAcquireForUsername(String username) {
+        String key = username.length() > MAX_USERNAME_KEY_LENGTH ? username.substring(0, MAX_USERNAME_KEY_LENGTH) : username;
+        return toRetryAfterSeconds(usernameLimiter.tryAcquire(key.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Descarta periódicamente las claves inactivas (cubo ya lleno de nuevo).
+     */
+    @Scheduled(fixedDelayString = "${security.login.rate-limit.sweep-interval:60000}")
+    public void evictIdle() {
+        ipLimiter.evictIdle();
+        usernameLimiter.evictIdle();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ipAllowed", ipLimiter.allowedCount());
+        stats.put("ipRejected", ipLimiter.rejectedCount());
+        stats.put("ipKeys", ipLimiter.size());
+        stats.put("ipOverflow", ipLimiter.overflowCount());
+        stats.put("usernameAllowed", usernameLimiter.allowedCount());
+        stats.put("usernameRejected", usernameLimiter.rejectedCount());
+        stats.put("usernameKeys", usernameLimiter.size());
+        stats.put("usernameOverflow", usernameLimiter.overflowCount());
+        return stats;
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return waitNanos == 0 ? 0 : Math.max(1L, (waitNanos + 999_999_999L) / 1_000_000_000L);
+    }
+}
@@ -0,0 +1,133 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.exception.ServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Compartimento estanco para el hash y la verificación de contraseñas.
+ * Todo el trabajo de BCrypt/PBKDF2 se ejecuta en un pool propio del tamaño del número de núcleos, con una
+ * cola acotada: una avalancha de logins no puede ocupar todos los hilos de Tomcat calculando hashes, y
+ * cuando la cola está llena se responde al momento con 503 y Retry-After en lugar de encolar sin límite.
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0L);
+
+    public PasswordHashingExecutor(@Value("${security.password.hashing.threads:0}") int threads,
+                                   @Value("${security.password.hashing.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Ejecuta la operación en el pool y espera su resultado.
+     * @throws ServiceUnavailableException si la cola está llena.
+     */
+    public <T> T execute(Supplier<T> operation) {
+        try {
+            return submit(operation).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se calculaba un hash de contraseña", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Encola la operación en el pool sin esperar.
+     * @throws ServiceUnavailableException si la cola está llena.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                totalQueueNanos.add(start - enqueuedAt);
+                try {
+                    return operation.get();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    totalHashNanos.add(elapsed);
+                    maxHashNanos.accumulate(elapsed);
+                    completed.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Cola de hash de contraseñas llena ({} en espera); se rechaza la petición.", executor.getQueue().size());
+            throw new ServiceUnavailableException("Demasiadas solicitudes de autenticación en curso. Intente de nuevo en unos segundos.",
+                    retryAfterSeconds());
+        }
+    }
+
+    /**
+     * Número de hilos del pool: cuántos hashes se calculan a la vez como mucho.
+     */
+    public int parallelism() {
+        return executor.getCorePoolSize();
+    }
+
+    public Map<String, Object> stats() {
+        long done = completed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", executor.getCorePoolSize());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("completed", done);
+        stats.put("rejected", rejected.sum());
+        stats.put("avgHashMillis", done == 0 ? 0.0 : totalHashNanos.sum() / 1e6 / done);
+        stats.put("maxHashMillis", maxHashNanos.get() / 1e6);
+        stats.put("avgQueueWaitMillis", done == 0 ? 0.0 : totalQueueNanos.sum() / 1e6 / done);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Tiempo estimado para vaciar la cola actual con la latencia media observada (mínimo 1 segundo).
+    private long retryAfterSeconds() {
+        long done = completed.sum();
+        double avgMillis = done == 0 ? 250.0 : totalHashNanos.sum() / 1e6 / done;
+        double drainMillis = executor.getQueue().size() * avgMillis / executor.getCorePoolSize();
+        return Math.max(1L, (long) Math.ceil(drainMillis / 1000.0));
+    }
+}
@@ -0,0 +1,111 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.model.ERole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conversión entre roles ({@link ERole}), máscaras de bits y autoridades de Spring Security.
+ * El token lleva los roles como una máscara sobre los ordinales de ERole (claim "rm"); al decodificarla
+ * se reutilizan instancias de GrantedAuthority compartidas, construidas una sola vez.
+ */
+public final class RoleAuthorities {
+
+    public static final String ROLE_PREFIX = "ROLE_";
+
+    private static final ERole[] ROLES = ERole.values();
+    private static final GrantedAuthority[] AUTHORITIES = new GrantedAuthority[ROLES.length];
+    private static final Map<String, ERole> BY_AUTHORITY = new HashMap<>();
+    private static final Map<String, ERole> BY_NAME = new HashMap<>();
+    // Con pocos roles hay pocas combinaciones posibles: cada lista inmutable se construye una sola vez.
+    private static final Map<Long, List<GrantedAuthority>> AUTHORITIES_BY_MASK = new ConcurrentHashMap<>();
+
+    static {
+        if (ROLES.length > Long.SIZE) {
+            throw new IllegalStateException("ERole tiene más valores de los que caben en una máscara de 64 bits.");
+        }
+        for (ERole role : ROLES) {
+            AUTHORITIES[role.ordinal()] = new SimpleGrantedAuthority(ROLE_PREFIX + role.name());
+            BY_AUTHORITY.put(ROLE_PREFIX + role.name(), role);
+            BY_NAME.put(role.name(), role);
+        }
+    }
+
+    private RoleAuthorities() {
+    }
+
+    public static GrantedAuthority authorityOf(ERole role) {
+        return AUTHORITIES[role.ordinal()];
+    }
+
+    public static long bit(ERole role) {
+        return 1L << role.ordinal();
+    }
+
+    /**
+     * Busca un rol por su nombre exacto ("ADMIN"). Devuelve null si no existe, sin lanzar excepción.
+     */
+    public static ERole fromName(String name) {
+        return name == null ? null : BY_NAME.get(name);
+    }
+
+    /**
+     * Busca un rol por su autoridad ("ROLE_ADMIN"). Devuelve null si no corresponde a ningún rol.
+     */
+    public static ERole fromAuthority(String authority) {
+        return authority == null ? null : BY_AUTHORITY.get(authority);
+    }
+
+    public static long toMask(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0L;
+        for (GrantedAuthority authority : authorities) {
+            ERole role = fromAuthority(authority.getAuthority());
+            if (role != null) {
+                mask |= bit(role);
+            }
+        }
+        return mask;
+    }
+
+    public static long toMask(Iterable<ERole> roles) {
+        long mask = 0L;
+        for (ERole role : roles) {
+            mask |= bit(role);
+        }
+        return mask;
+    }
+
+    public static EnumSet<ERole> fromMask(long mask) {
+        EnumSet<ERole> roles = EnumSet.noneOf(ERole.class);
+        for (ERole role : ROLES) {
+            if ((mask & bit(role)) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Lista inmutable y compartida de autoridades para una máscara de roles.
+     */
+    public static List<GrantedAuthority> authorities(long mask) {
+        return AUTHORITIES_BY_MASK.computeIfAbsent(mask, m -> {
+            List<GrantedAuthority> authorities = new ArrayList<>(Long.bitCount(m));
+            for (ERole role : ROLES) {
+                if ((m & bit(role)) != 0) {
+                    authorities.add(AUTHORITIES[role.ordinal()]);
+                }
+            }
+            return Collections.unmodifiableList(authorities);
+        });
+    }
+}
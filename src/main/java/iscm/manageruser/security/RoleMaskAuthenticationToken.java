@@ -0,0 +1,26 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.model.ERole;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+/**
+ * Autenticación construida a partir de un token JWT que conserva los roles como máscara de bits,
+ * para que las comprobaciones de rol sean una operación AND en lugar de comparar cadenas.
+ */
+public class RoleMaskAuthenticationToken extends UsernamePasswordAuthenticationToken {
+
+    private final long roleMask;
+
+    public RoleMaskAuthenticationToken(String username, long roleMask) {
+        super(username, null, RoleAuthorities.authorities(roleMask));
+        this.roleMask = roleMask;
+    }
+
+    public long getRoleMask() {
+        return roleMask;
+    }
+
+    public boolean hasRole(ERole role) {
+        return (roleMask & RoleAuthorities.bit(role)) != 0;
+    }
+}
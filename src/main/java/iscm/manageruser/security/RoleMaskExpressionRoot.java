@@ -0,0 +1,146 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.model.ERole;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Supplier;
+
+/**
+ * Raíz de las expresiones de @PreAuthorize que resuelve hasRole / hasAnyRole / hasAuthority con pruebas
+ * de bits cuando la autenticación proviene de un token ({@link RoleMaskAuthenticationToken}).
+ * El resto de operaciones, y cualquier otra autenticación, se delegan en la raíz estándar de Spring.
+ */
+public class RoleMaskExpressionRoot implements MethodSecurityExpressionOperations {
+
+    // Mismos atributos públicos que SecurityExpressionRoot, para que SpEL los resuelva igual.
+    public final boolean permitAll = true;
+    public final boolean denyAll = false;
+    public final String read = "read";
+    public final String write = "write";
+    public final String create = "create";
+    public final String delete = "delete";
+    public final String admin = "administration";
+
+    private final MethodSecurityExpressionOperations delegate;
+    private final Supplier<Authentication> authentication;
+
+    public RoleMaskExpressionRoot(MethodSecurityExpressionOperations delegate, Supplier<Authentication> authentication) {
+        this.delegate = delegate;
+        this.authentication = authentication;
+    }
+
+    @Override
+    public boolean hasRole(String role) {
+        return hasAnyRole(role);
+    }
+
+    @Override
+    public boolean hasAnyRole(String... roles) {
+        if (!(authentication.get() instanceof RoleMaskAuthenticationToken token)) {
+            return delegate.hasAnyRole(roles);
+        }
+        long required = 0L;
+        for (String role : roles) {
+            ERole eRole = RoleAuthorities.fromAuthority(role.startsWith(RoleAuthorities.ROLE_PREFIX) ? role : RoleAuthorities.ROLE_PREFIX + role);
+            if (eRole != null) {
+                required |= RoleAuthorities.bit(eRole);
+            }
+        }
+        return (token.getRoleMask() & required) != 0;
+    }
+
+    @Override
+    public boolean hasAuthority(String authority) {
+        return hasAnyAuthority(authority);
+    }
+
+    @Override
+    public boolean hasAnyAuthority(String... authorities) {
+        if (!(authentication.get() instanceof RoleMaskAuthenticationToken token)) {
+            return delegate.hasAnyAuthority(authorities);
+        }
+        long required = 0L;
+        for (String authority : authorities) {
+            ERole eRole = RoleAuthorities.fromAuthority(authority);
+            if (eRole != null) {
+                required |= RoleAuthorities.bit(eRole);
+            }
+        }
+        return (token.getRoleMask() & required) != 0;
+    }
+
+    public Object getPrincipal() {
+        return getAuthentication().getPrincipal();
+    }
+
+    @Override
+    public Authentication getAuthentication() {
+        return delegate.getAuthentication();
+    }
+
+    @Override
+    public boolean permitAll() {
+        return delegate.permitAll();
+    }
+
+    @Override
+    public boolean denyAll() {
+        return delegate.denyAll();
+    }
+
+    @Override
+    public boolean isAnonymous() {
+        return delegate.isAnonymous();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return delegate.isAuthenticated();
+    }
+
+    @Override
+    public boolean isRememberMe() {
+        return delegate.isRememberMe();
+    }
+
+    @Override
+    public boolean isFullyAuthenticated() {
+        return delegate.isFullyAuthenticated();
+    }
+
+    @Override
+    public boolean hasPermission(Object target, Object permission) {
+        return delegate.hasPermission(target, permission);
+    }
+
+    @Override
+    public boolean hasPermission(Object targetId, String targetType, Object permission) {
+        return delegate.hasPermission(targetId, targetType, permission);
+    }
+
+    @Override
+    public void setFilterObject(Object filterObject) {
+        delegate.setFilterObject(filterObject);
+    }
+
+    @Override
+    public Object getFilterObject() {
+        return delegate.getFilterObject();
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject) {
+        delegate.setReturnObject(returnObject);
+    }
+
+    @Override
+    public Object getReturnObject() {
+        return delegate.getReturnObject();
+    }
+
+    @Override
+    public Object getThis() {
+        return delegate.getThis();
+    }
+}
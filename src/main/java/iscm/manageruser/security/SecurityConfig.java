@@ -1,13 +1,15 @@
 package iscm.manageruser.security;
 
 
-import iscm.manageruser.repositories.UserRepository;
 import iscm.manageruser.security.filters.JwtAuthenticationFilter;
 import iscm.manageruser.security.filters.JwtAuthorizationFilter;
+import iscm.manageruser.security.filters.LoginRateLimitFilter;
 import iscm.manageruser.security.jwt.JwtUtils;
+import iscm.manageruser.service.RefreshTokenService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -17,8 +19,6 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -34,20 +34,25 @@ public class SecurityConfig {
     private final JwtUtils jwtUtils;
     private final UserDetailsService userDetailsService;
     private final JwtAuthorizationFilter jwtAuthorizationFilter;
-    private final UserRepository userRepository;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final LoginRateLimiter loginRateLimiter;
 
     // Inyección por constructor (MEJOR PRÁCTICA)
     public SecurityConfig(JwtUtils jwtUtils, UserDetailsService userDetailsService,
-                          JwtAuthorizationFilter jwtAuthorizationFilter, UserRepository userRepository) {
+                          JwtAuthorizationFilter jwtAuthorizationFilter, RefreshTokenService refreshTokenService,
+                          LoginAttemptTracker loginAttemptTracker, LoginRateLimiter loginRateLimiter) {
         this.jwtUtils = jwtUtils;
         this.userDetailsService = userDetailsService;
         this.jwtAuthorizationFilter = jwtAuthorizationFilter;
-        this.userRepository = userRepository;
+        this.refreshTokenService = refreshTokenService;
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity, AuthenticationManager authenticationManager) throws Exception {
-        JwtAuthenticationFilter jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtUtils, userRepository);
+        JwtAuthenticationFilter jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtUtils, refreshTokenService, loginAttemptTracker, loginRateLimiter);
         jwtAuthenticationFilter.setAuthenticationManager(authenticationManager);
         jwtAuthenticationFilter.setFilterProcessesUrl("/api/v1/login");
 
@@ -56,20 +61,28 @@ public class SecurityConfig {
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth -> {
                     auth.requestMatchers("/api/v1/login").permitAll();
+                    // La renovación se autentica con el propio refresh token, no con el token de acceso
+                    auth.requestMatchers("/api/v1/token/refresh").permitAll();
                     // Si usas Swagger/OpenAPI, también deberías permitir el acceso a su UI
                     auth.requestMatchers( "/api-docs/**","/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll();
                     auth.requestMatchers("/.well-known/jwks.json").permitAll();
                     auth.anyRequest().authenticated();
                 })
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // El límite por IP va antes de leer el JSON del login y de verificar la contraseña
+                .addFilterBefore(new LoginRateLimitFilter(loginRateLimiter, "/api/v1/login"), UsernamePasswordAuthenticationFilter.class)
                 .addFilter(jwtAuthenticationFilter)
                 .addFilterBefore(jwtAuthorizationFilter, UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 
+    /**
+     * Evalúa hasRole/hasAnyRole de @PreAuthorize con pruebas de bits sobre la máscara de roles del token.
+     * Es estático para que se registre antes que la configuración de seguridad de métodos.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    static MethodSecurityExpressionHandler methodSecurityExpressionHandler() {
+        return new RoleMaskMethodSecurityExpressionHandler();
     }
 
     @Bean
@@ -1,20 +1,25 @@
 package iscm.manageruser.security.filters;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import iscm.manageruser.exception.ServiceUnavailableException;
 import iscm.manageruser.model.UserEntity;
-import iscm.manageruser.repositories.UserRepository;
 import iscm.manageruser.request.LoginRequest;
+import iscm.manageruser.security.AuthenticatedUser;
+import iscm.manageruser.security.LoginAttemptTracker;
+import iscm.manageruser.security.LoginRateLimiter;
 import iscm.manageruser.security.jwt.JwtUtils;
+import iscm.manageruser.service.RefreshTokenService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import java.io.IOException;
 import java.util.HashMap;
@@ -23,14 +28,19 @@ import java.util.Map;
 public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserRepository userRepository;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final LoginRateLimiter loginRateLimiter;
 
     // Define una constante para el nombre del atributo, para evitar errores de tipeo.
     private static final String USERNAME_ATTRIBUTE = "ATTEMPTED_USERNAME";
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserRepository userRepository) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, RefreshTokenService refreshTokenService,
+                                   LoginAttemptTracker loginAttemptTracker, LoginRateLimiter loginRateLimiter) {
         this.jwtUtils = jwtUtils;
-        this.userRepository = userRepository;
+        this.refreshTokenService = refreshTokenService;
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     @Override
@@ -42,10 +52,24 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
             // Esto lo hace disponible para otros métodos más adelante en la cadena, como unsuccessfulAuthentication.
             request.setAttribute(USERNAME_ATTRIBUTE, loginRequest.username());
 
+            // Límite por usuario intentado (el de IP ya se aplicó en LoginRateLimitFilter), antes de cualquier hash.
+            if (loginRequest.username() != null) {
+                long retryAfter = loginRateLimiter.tryAcquireForUsername(loginRequest.username());
+                if (retryAfter > 0) {
+                    LoginRateLimitFilter.writeTooManyRequests(response, retryAfter);
+                    return null;
+                }
+            }
+
             UsernamePasswordAuthenticationToken authenticationToken =
                     new UsernamePasswordAuthenticationToken(loginRequest.username(), loginRequest.password());
 
             return getAuthenticationManager().authenticate(authenticationToken);
+        } catch (ServiceUnavailableException e) {
+            // El pool de hash de contraseñas está saturado: se responde al momento en lugar de esperar en cola.
+            // Devolver null deja la petición como ya respondida, sin contar un intento fallido.
+            writeServiceUnavailable(response, e);
+            return null;
         } catch (IOException e) {
             // Es mejor encapsular la excepción original para no perder el contexto.
             throw new RuntimeException("Error al leer las credenciales de la solicitud", e);
@@ -58,37 +82,31 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                             FilterChain chain,
                                             Authentication authResult) throws IOException, ServletException {
 
-        User user = (User) authResult.getPrincipal();
+        AuthenticatedUser user = (AuthenticatedUser) authResult.getPrincipal();
 
-        // 1. Obtener el UserEntity completo desde la base de datos
-        // Usamos orElseThrow para manejar el caso (muy improbable) de que el usuario no se encuentre
-        UserEntity userEntity = userRepository.findByUsername(user.getUsername())
-                .orElseThrow(() -> new RuntimeException("Error: Usuario autenticado no encontrado en la base de datos."));
+        // 1. El UserEntity ya se cargó (con sus roles) al autenticar: no se vuelve a consultar
+        UserEntity userEntity = user.getUserEntity();
 
-        // No es necesario reiniciar los intentos aquí si ya lo hace el UserDetailService
-        // Pero si no, esta es una buena práctica:
-        if (userEntity.getIntentos_ingreso() > 0) {
-            userEntity.setIntentos_ingreso(0);
-            userRepository.save(userEntity);
+        // Reinicia los intentos fallidos y, si Spring re-codificó el hash con el coste actual, lo guarda
+        // en la misma sentencia (solo hay UPDATE si hay algo que escribir).
+        // Si otro intento concurrente bloqueó la cuenta mientras se verificaba la contraseña, el login se rechaza.
+        if (!loginAttemptTracker.recordSuccess(userEntity, user.getUpgradedPassword())) {
+            unsuccessfulAuthentication(request, response, new LockedException("User account is locked"));
+            return;
         }
 
         // 2. Crear el mapa de claims adicionales
-        Map<String, Object> additionalClaims = new HashMap<>();
-        additionalClaims.put("username", userEntity.getUsername()); // Aunque está en 'sub', a veces es útil tenerlo explícito
-        additionalClaims.put("cargo", userEntity.getCargo());
-        additionalClaims.put("ciudad", userEntity.getCiudad());
-
-        // Convertimos LocalDate a String para que sea compatible con JSON
-        if (userEntity.getFecha_caducidad_password() != null) {
-            additionalClaims.put("fecha_caducidad_password", userEntity.getFecha_caducidad_password().toString());
-        }
+        Map<String, Object> additionalClaims = jwtUtils.buildUserClaims(userEntity);
 
-        // 3. Generar el token con los claims adicionales
+        // 3. Generar el token de acceso (corta duración) con los claims adicionales y su refresh token
         String token = jwtUtils.generateAccessToken(user.getUsername(), user.getAuthorities(), additionalClaims);
+        String refreshToken = refreshTokenService.createRefreshToken(userEntity);
 
-        // 4. Construir la respuesta HTTP (sin cambios aquí)
+        // 4. Construir la respuesta HTTP
         Map<String, Object> httpResponse = new HashMap<>();
         httpResponse.put("token", token);
+        httpResponse.put("refreshToken", refreshToken);
+        httpResponse.put("expiresIn", jwtUtils.getTimeExpiration() / 1000);
         httpResponse.put("message", "Autenticación Correcta");
         httpResponse.put("username", user.getUsername());
 
@@ -99,24 +117,31 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         response.getWriter().flush();
     }
 
+    private void writeServiceUnavailable(HttpServletResponse response, ServiceUnavailableException e) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Servicio temporalmente saturado.");
+        errorResponse.put("message", e.getMessage());
+
+        try {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(new ObjectMapper().writeValueAsString(errorResponse));
+            response.getWriter().flush();
+        } catch (IOException ioException) {
+            throw new RuntimeException("Error al escribir la respuesta 503", ioException);
+        }
+    }
+
     @Override
     protected void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response, AuthenticationException failed) throws IOException, ServletException {
         // <-- CAMBIO 2: Obtener el username del atributo de la petición, no de los parámetros.
         String username = (String) request.getAttribute(USERNAME_ATTRIBUTE);
 
-        // Solo procede si pudimos obtener el username.
+        // Solo procede si pudimos obtener el username. El contador es atómico y en memoria:
+        // no se lee ni se reescribe la fila del usuario en cada intento fallido.
         if (username != null) {
-            userRepository.findByUsername(username).ifPresent(userEntity -> {
-                // Solo incrementa si el usuario no está ya bloqueado
-                if (!userEntity.isBloqueado()) {
-                    userEntity.setIntentos_ingreso(userEntity.getIntentos_ingreso() + 1);
-                    if (userEntity.getIntentos_ingreso() >= 3) {
-                        userEntity.setBloqueado(true);
-                        logger.warn(String.format("Usuario '%s' ha sido bloqueado por exceso de intentos de login.", username));
-                    }
-                    userRepository.save(userEntity);
-                }
-            });
+            loginAttemptTracker.recordFailure(username);
         }
 
         Map<String, Object> errorResponse = new HashMap<>();
@@ -1,13 +1,11 @@
 package iscm.manageruser.security.filters;
 
-import io.jsonwebtoken.Claims;
-import iscm.manageruser.security.jwt.JwtUtils;
+import iscm.manageruser.security.jwt.VerifiedTokenCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -16,17 +14,15 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 public class JwtAuthorizationFilter extends OncePerRequestFilter {
 
 
-    private final JwtUtils jwtUtils;
-    public JwtAuthorizationFilter(JwtUtils jwtUtils)
+    private final VerifiedTokenCache verifiedTokenCache;
+    public JwtAuthorizationFilter(VerifiedTokenCache verifiedTokenCache)
     {
-        this.jwtUtils = jwtUtils;
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @Override
@@ -36,27 +32,9 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
         if (tokenHeader != null && tokenHeader.startsWith("Bearer ")) {
             String token = tokenHeader.substring(7);
 
-            if (jwtUtils.isTokenValid(token)) {
-                String username = jwtUtils.getUsernameFromToken(token);
-                Claims claims = jwtUtils.extractAllClaims(token);
-
-
-                List<String> rolesFromClaims = claims.get("roles", List.class);
-                Collection<SimpleGrantedAuthority> authorities = rolesFromClaims.stream()
-                        // añadir el prefijo "ROLE_" si tus @PreAuthorize lo esperan (y sí lo hacen).
-                        .map(role -> new SimpleGrantedAuthority(role.startsWith("ROLE_") ? role : "ROLE_" + role))
-                        .collect(Collectors.toList());
-
-                /*List<String> roles = claims.get("roles", List.class);
-
-                Collection<SimpleGrantedAuthority> authorities = roles.stream()
-                        .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
-                 */
-                UsernamePasswordAuthenticationToken authenticationToken =
-                        new UsernamePasswordAuthenticationToken(username, null, authorities);
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-            }
+            // Una sola verificación por token: las peticiones repetidas se resuelven desde la caché.
+            verifiedTokenCache.verify(token).ifPresent(verified ->
+                    SecurityContextHolder.getContext().setAuthentication(verified.authentication()));
         }
         filterChain.doFilter(request, response);
     }
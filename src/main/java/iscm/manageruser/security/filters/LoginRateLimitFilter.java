@@ -0,0 +1,58 @@
+package iscm.manageruser.security.filters;
+
+import iscm.manageruser.security.LoginRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Limita por IP las peticiones de login antes de leer el JSON y de verificar ninguna contraseña.
+ * No es un @Component: se registra solo en la cadena de seguridad, delante del filtro de autenticación.
+ */
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    // Respuesta fija y precalculada: rechazar debe costar lo mínimo posible.
+    private static final byte[] TOO_MANY_REQUESTS_BODY =
+            "{\"error\":\"Demasiados intentos de inicio de sesión. Intente de nuevo más tarde.\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final LoginRateLimiter loginRateLimiter;
+    private final String loginPath;
+
+    public LoginRateLimitFilter(LoginRateLimiter loginRateLimiter, String loginPath) {
+        this.loginRateLimiter = loginRateLimiter;
+        this.loginPath = loginPath;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !loginPath.equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long retryAfter = loginRateLimiter.tryAcquireForIp(request.getRemoteAddr());
+        if (retryAfter > 0) {
+            writeTooManyRequests(response, retryAfter);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    static void writeTooManyRequests(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(TOO_MANY_REQUESTS_BODY.length);
+        response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+        response.flushBuffer();
+    }
+}
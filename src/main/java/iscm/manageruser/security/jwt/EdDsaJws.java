@@ -0,0 +1,96 @@
+package iscm.manageruser.security.jwt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Firma y verificación de JWS compactos con EdDSA (Ed25519), que jjwt 0.11 no soporta.
+ * La cabecera que se genera es fija por clave, por lo que su segmento Base64URL sirve
+ * para reconocer sin decodificar JSON los tokens que hay que verificar por esta vía.
+ */
+final class EdDsaJws {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private EdDsaJws() {
+    }
+
+    /**
+     * Devuelve el segmento de cabecera (ya codificado) que llevan todos los tokens firmados con esta clave.
+     */
+    static String headerSegment(JwtKey key) {
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("kid", key.kid());
+        header.put("alg", JwtAlgorithm.EdDSA.jwsName());
+        return encodeJson(header);
+    }
+
+    static String sign(Claims claims, JwtKey key) {
+        String signingInput = headerSegment(key) + "." + encodeJson(claims);
+        try {
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initSign(key.privateKey());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + ENCODER.encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar el token con EdDSA", e);
+        }
+    }
+
+    static Claims verify(String token, JwtKey key) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot < 0 || lastDot == firstDot) {
+            throw new MalformedJwtException("El token EdDSA no tiene tres segmentos.");
+        }
+        try {
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initVerify(key.publicKey());
+            signature.update(token.substring(0, lastDot).getBytes(StandardCharsets.US_ASCII));
+            if (!signature.verify(DECODER.decode(token.substring(lastDot + 1)))) {
+                throw new SignatureException("La firma EdDSA del token no es válida.");
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new SignatureException("No se pudo verificar la firma EdDSA del token.", e);
+        }
+
+        Claims claims;
+        try {
+            Map<String, Object> body = objectMapper.readValue(
+                    DECODER.decode(token.substring(firstDot + 1, lastDot)), new TypeReference<>() {});
+            claims = Jwts.claims(body);
+        } catch (Exception e) {
+            throw new MalformedJwtException("El cuerpo del token EdDSA no es JSON válido.", e);
+        }
+
+        Date expiration = claims.getExpiration();
+        if (expiration != null && !expiration.after(new Date())) {
+            throw new ExpiredJwtException(null, claims, "El token EdDSA expiró en " + expiration);
+        }
+        return claims;
+    }
+
+    private static String encodeJson(Map<String, ?> value) {
+        try {
+            return ENCODER.encodeToString(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el token a JSON", e);
+        }
+    }
+}
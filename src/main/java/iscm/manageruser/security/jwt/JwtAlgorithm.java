@@ -0,0 +1,75 @@
+package iscm.manageruser.security.jwt;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * Algoritmos de firma JWS soportados para los tokens de acceso.
+ * RS256 y ES256 se firman con jjwt; EdDSA (Ed25519) no está soportado por jjwt 0.11,
+ * así que se firma y verifica directamente con el proveedor de la JVM (ver {@link EdDsaJws}).
+ */
+public enum JwtAlgorithm {
+    RS256("RS256", SignatureAlgorithm.RS256),
+    ES256("ES256", SignatureAlgorithm.ES256),
+    EdDSA("EdDSA", null);
+
+    private final String jwsName;
+    private final SignatureAlgorithm jjwtAlgorithm;
+
+    JwtAlgorithm(String jwsName, SignatureAlgorithm jjwtAlgorithm) {
+        this.jwsName = jwsName;
+        this.jjwtAlgorithm = jjwtAlgorithm;
+    }
+
+    /**
+     * El valor del parámetro 'alg' en la cabecera JWS y en el JWK.
+     */
+    public String jwsName() {
+        return jwsName;
+    }
+
+    /**
+     * El algoritmo equivalente de jjwt, o null si jjwt no lo soporta (EdDSA).
+     */
+    public SignatureAlgorithm jjwtAlgorithm() {
+        return jjwtAlgorithm;
+    }
+
+    /**
+     * Acepta tanto el nombre JWS ("EdDSA") como variantes en mayúsculas ("EDDSA", "ED25519").
+     */
+    public static JwtAlgorithm fromName(String name) {
+        String normalized = name.trim().toUpperCase();
+        if (normalized.equals("EDDSA") || normalized.equals("ED25519")) {
+            return EdDSA;
+        }
+        return valueOf(normalized);
+    }
+
+    /**
+     * Deduce el algoritmo a partir del tipo de la clave pública (RSA, EC P-256 o Ed25519).
+     */
+    public static JwtAlgorithm fromKey(PublicKey publicKey) {
+        if (publicKey instanceof RSAPublicKey) {
+            return RS256;
+        }
+        if (publicKey instanceof ECPublicKey ecPublicKey) {
+            int fieldSize = ecPublicKey.getParams().getCurve().getField().getFieldSize();
+            if (fieldSize != 256) {
+                throw new IllegalStateException("Solo se soportan claves EC sobre la curva P-256 (ES256). Tamaño de campo: " + fieldSize);
+            }
+            return ES256;
+        }
+        if (publicKey instanceof EdECPublicKey edPublicKey) {
+            if (!"Ed25519".equalsIgnoreCase(edPublicKey.getParams().getName())) {
+                throw new IllegalStateException("Solo se soportan claves Ed25519 para EdDSA: " + edPublicKey.getParams().getName());
+            }
+            return EdDSA;
+        }
+        throw new IllegalStateException("Tipo de clave no soportado para firmar JWT: " + publicKey.getAlgorithm());
+    }
+}
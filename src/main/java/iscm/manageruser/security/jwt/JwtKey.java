@@ -0,0 +1,15 @@
+package iscm.manageruser.security.jwt;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * Una clave del keystore usada para firmar y/o verificar tokens.
+ *
+ * @param kid        El Key ID publicado en la cabecera del token y en el JWKS (el alias del keystore).
+ * @param algorithm  El algoritmo JWS asociado al tipo de la clave.
+ * @param privateKey La clave privada, o null si la clave solo se usa para verificar.
+ * @param publicKey  La clave pública usada para verificar firmas.
+ */
+public record JwtKey(String kid, JwtAlgorithm algorithm, PrivateKey privateKey, PublicKey publicKey) {
+}
@@ -0,0 +1,49 @@
+package iscm.manageruser.security.jwt;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conjunto inmutable de claves JWT: la clave activa con la que se firman los tokens nuevos
+ * y todas las claves (indexadas por kid) con las que se aceptan tokens entrantes.
+ */
+public class JwtKeyRing {
+
+    private final JwtKey signingKey;
+    private final Map<String, JwtKey> keysById;
+
+    public JwtKeyRing(JwtKey signingKey, Collection<JwtKey> verificationKeys) {
+        if (signingKey.privateKey() == null) {
+            throw new IllegalStateException("La clave activa '" + signingKey.kid() + "' no tiene clave privada.");
+        }
+        Map<String, JwtKey> keys = new LinkedHashMap<>();
+        keys.put(signingKey.kid(), signingKey);
+        for (JwtKey key : verificationKeys) {
+            keys.putIfAbsent(key.kid(), key);
+        }
+        this.signingKey = signingKey;
+        this.keysById = Map.copyOf(keys);
+    }
+
+    public JwtKey signingKey() {
+        return signingKey;
+    }
+
+    /**
+     * Busca una clave por su kid. Los tokens sin kid se verifican con la clave activa.
+     */
+    public JwtKey find(String kid) {
+        return kid == null ? signingKey : keysById.get(kid);
+    }
+
+    /**
+     * Todas las claves, empezando por la activa.
+     */
+    public List<JwtKey> keys() {
+        return keysById.values().stream()
+                .sorted((a, b) -> a == signingKey ? -1 : b == signingKey ? 1 : a.kid().compareTo(b.kid()))
+                .toList();
+    }
+}
@@ -1,57 +1,109 @@
 package iscm.manageruser.security.jwt;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.SignatureException;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.security.RoleAuthorities;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.security.Key;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class JwtUtils {
 
-    private final RSAPrivateKey privateKey;
-    private final RSAPublicKey publicKey;
+    public static final String ROLE_MASK_CLAIM = "rm";
+    public static final String LEGACY_ROLES_CLAIM = "roles";
+
+    private final JwtKeyRing keyRing;
+
+    // El parser es inmutable y thread-safe: se construye una sola vez y se reutiliza en cada verificación.
+    // Resuelve la clave pública por el 'kid' de la cabecera, así acepta cualquier algoritmo configurado.
+    private final JwtParser jwtParser;
+
+    // Segmento de cabecera -> clave, para los tokens EdDSA que jjwt no sabe verificar.
+    private final Map<String, JwtKey> edDsaHeaders = new HashMap<>();
+
+    // Vida de los tokens de acceso en milisegundos. Son cortos: se renuevan con un refresh token.
+    private final long timeExpiration;
+
+    // Inyección de dependencias del conjunto de claves a través del constructor
+    public JwtUtils(JwtKeyRing keyRing, @Value("${jwt.time.expiration:900000}") long timeExpiration) {
+        this.keyRing = keyRing;
+        this.timeExpiration = timeExpiration;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        JwtKey key = keyRing.find(header.getKeyId());
+                        if (key == null || key.algorithm().jjwtAlgorithm() == null) {
+                            throw new SignatureException("Clave de firma desconocida: " + header.getKeyId());
+                        }
+                        return key.publicKey(); // <-- USA LA CLAVE PÚBLICA
+                    }
+                })
+                .build();
+        for (JwtKey key : keyRing.keys()) {
+            if (key.algorithm() == JwtAlgorithm.EdDSA) {
+                edDsaHeaders.put(EdDsaJws.headerSegment(key), key);
+            }
+        }
+    }
 
-    private final Long timeExpiration = 86400000L;
+    /**
+     * Genera un token de acceso para un usuario ya cargado, con sus roles y los claims de perfil
+     * (cargo, ciudad, fecha_caducidad_password). No requiere ninguna consulta adicional.
+     */
+    public String generateAccessToken(UserEntity userEntity) {
+        List<GrantedAuthority> authorities = userEntity.getRoles().stream()
+                .map(role -> RoleAuthorities.authorityOf(role.getName()))
+                .toList();
+        return generateAccessToken(userEntity.getUsername(), authorities, buildUserClaims(userEntity));
+    }
 
-    @Value("${jwt.keystore.alias}")
-    private String keyAlias;
+    /**
+     * Construye los claims adicionales que se incluyen en el token a partir del usuario.
+     */
+    public Map<String, Object> buildUserClaims(UserEntity userEntity) {
+        Map<String, Object> additionalClaims = new HashMap<>();
+        additionalClaims.put("username", userEntity.getUsername()); // Aunque está en 'sub', a veces es útil tenerlo explícito
+        additionalClaims.put("cargo", userEntity.getCargo());
+        additionalClaims.put("ciudad", userEntity.getCiudad());
+
+        // Convertimos LocalDate a String para que sea compatible con JSON
+        if (userEntity.getFecha_caducidad_password() != null) {
+            additionalClaims.put("fecha_caducidad_password", userEntity.getFecha_caducidad_password().toString());
+        }
+        return additionalClaims;
+    }
 
-    // Inyección de dependencias de las claves RSA a través del constructor
-    public JwtUtils(RSAPrivateKey privateKey, RSAPublicKey publicKey) {
-        this.privateKey = privateKey;
-        this.publicKey = publicKey;
+    /**
+     * Vida de los tokens de acceso, en milisegundos.
+     */
+    public long getTimeExpiration() {
+        return timeExpiration;
     }
 
     /**
-     * Genera un token de acceso firmado con la clave privada RSA (RS256).
+     * Genera un token de acceso firmado con la clave activa (RS256, ES256 o EdDSA según configuración).
      */
     public String generateAccessToken(String username, Collection<? extends GrantedAuthority> authorities) {
-        List<String> roles = authorities.stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toList());
-
-        return Jwts.builder()
-                .setHeaderParam("kid", keyAlias) // Añade el Key ID a la cabecera
-                .setSubject(username)
-                .claim("roles", roles)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + timeExpiration))
-                .signWith(privateKey, SignatureAlgorithm.RS256)
-                .compact();
+        return generateAccessToken(username, authorities, null);
     }
 
     /**
@@ -62,37 +114,54 @@ public class JwtUtils {
      * @return El token JWT como un String.
      */
     public String generateAccessToken(String username, Collection<? extends GrantedAuthority> authorities, Map<String, Object> additionalClaims) {
-        List<String> roles = authorities.stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toList());
-
-        // Construye el builder del token
-        JwtBuilder builder = Jwts.builder()
-                .setHeaderParam("kid", keyAlias)
+        // Construye el payload del token
+        Claims claims = Jwts.claims()
+                .setId(UUID.randomUUID().toString()) // 'jti': permite revocar este token concreto
                 .setSubject(username)
-                .claim("roles", roles)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + timeExpiration));
+        // 'rm': máscara de bits sobre los ordinales de ERole (sustituye a la lista de cadenas "roles")
+        claims.put(ROLE_MASK_CLAIM, RoleAuthorities.toMask(authorities));
 
         // Añade los claims adicionales al payload
         if (additionalClaims != null) {
-            builder.addClaims(additionalClaims);
+            claims.putAll(additionalClaims);
         }
 
-        // Firma y compacta el token
-        return builder.signWith(privateKey, SignatureAlgorithm.RS256).compact();
+        // Firma y compacta el token con la clave activa
+        JwtKey signingKey = keyRing.signingKey();
+        if (signingKey.algorithm() == JwtAlgorithm.EdDSA) {
+            return EdDsaJws.sign(claims, signingKey);
+        }
+        return Jwts.builder()
+                .setHeaderParam("kid", signingKey.kid()) // Añade el Key ID a la cabecera
+                .setClaims(claims)
+                .signWith(signingKey.privateKey(), signingKey.algorithm().jjwtAlgorithm())
+                .compact();
     }
 
 
     /**
-     * Valida la firma de un token utilizando la clave pública RSA.
+     * Verifica la firma y la expiración del token una única vez y devuelve sus claims.
+     * @throws JwtException si el token es inválido, está mal formado o ha expirado.
+     */
+    public Claims parseClaims(String token) throws JwtException {
+        if (!edDsaHeaders.isEmpty()) {
+            int dot = token.indexOf('.');
+            JwtKey edDsaKey = dot > 0 ? edDsaHeaders.get(token.substring(0, dot)) : null;
+            if (edDsaKey != null) {
+                return EdDsaJws.verify(token, edDsaKey);
+            }
+        }
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Valida la firma de un token utilizando la clave pública correspondiente a su 'kid'.
      */
     public boolean isTokenValid(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(publicKey) // <-- USA LA CLAVE PÚBLICA
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (Exception e) {
             log.error("Token JWT inválido o expirado: {}", e.getMessage());
@@ -104,11 +173,7 @@ public class JwtUtils {
      * Extrae todos los claims (cuerpo) de un token, validando la firma con la clave pública.
      */
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(publicKey) // <-- USA LA CLAVE PÚBLICA
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseClaims(token);
     }
 
     /**
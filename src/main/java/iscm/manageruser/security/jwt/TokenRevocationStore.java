@@ -0,0 +1,207 @@
+package iscm.manageruser.security.jwt;
+
+import iscm.manageruser.model.RevokedTokenEntity;
+import iscm.manageruser.repositories.RefreshTokenRepository;
+import iscm.manageruser.repositories.RevokedTokenRepository;
+import iscm.manageruser.utils.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lista de revocación de tokens de acceso consultada en cada petición autenticada.
+ * El camino habitual (token no revocado) se resuelve con un filtro de Bloom en memoria, sin tocar la BD;
+ * solo ante un "quizá" se consultan los mapas exactos, también en memoria. La tabla 'revoked_tokens'
+ * es la copia persistente: se carga al arrancar y se sincroniza periódicamente con otros nodos.
+ * Cada revocación caduca en el 'exp' del último token al que afecta.
+ */
+@Component
+@Slf4j
+public class TokenRevocationStore {
+
+    // Solape al sincronizar, para no perder filas de transacciones que confirmaron tarde en otros nodos.
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(5);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long accessTokenExpiration;
+    private final long expectedEntries;
+
+    // jti -> expiración (ms) del token revocado
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // username -> revocación de todos sus tokens emitidos antes de un instante
+    private final ConcurrentHashMap<String, UserRevocation> revokedUsers = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder bloomPositives = new LongAdder();
+    private final LongAdder revokedHits = new LongAdder();
+
+    private record UserRevocation(long revokedSinceSeconds, long expiresAt) {
+    }
+
+    public TokenRevocationStore(RevokedTokenRepository revokedTokenRepository,
+                                RefreshTokenRepository refreshTokenRepository,
+                                @Value("${jwt.time.expiration:900000}") long accessTokenExpiration,
+                                @Value("${jwt.revocation.expected-entries:100000}") long expectedEntries) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.accessTokenExpiration = accessTokenExpiration;
+        this.expectedEntries = expectedEntries;
+        this.bloomFilter = new BloomFilter(expectedEntries, 0.01);
+    }
+
+    /**
+     * Carga desde la tabla persistente las revocaciones aún vigentes.
+     */
+    @PostConstruct
+    public void load() {
+        synchronize();
+        log.info("Lista de revocación cargada: {} tokens y {} usuarios revocados.", revokedTokens.size(), revokedUsers.size());
+    }
+
+    /**
+     * Indica si un token verificado está revocado. Sin consultas a la BD.
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        checks.increment();
+        if (revokedTokens.isEmpty() && revokedUsers.isEmpty()) {
+            return false;
+        }
+        BloomFilter filter = bloomFilter;
+        String username = token.authentication().getName();
+        boolean maybeToken = token.jti() != null && filter.mightContain("j:" + token.jti());
+        boolean maybeUser = username != null && filter.mightContain("u:" + username);
+        if (!maybeToken && !maybeUser) {
+            return false;
+        }
+        bloomPositives.increment();
+
+        long now = System.currentTimeMillis();
+        if (maybeToken) {
+            Long expiresAt = revokedTokens.get(token.jti());
+            if (expiresAt != null && expiresAt > now) {
+                revokedHits.increment();
+                return true;
+            }
+        }
+        if (maybeUser) {
+            UserRevocation revocation = revokedUsers.get(username);
+            // 'iat' tiene precisión de segundos: se revocan los tokens emitidos en segundos anteriores a la revocación.
+            if (revocation != null && revocation.expiresAt() > now
+                    && token.issuedAt() / 1000 < revocation.revokedSinceSeconds()) {
+                revokedHits.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Revoca un token de acceso concreto hasta su expiración.
+     */
+    @Transactional
+    public void revoke(String jti, long expiresAt) {
+        Instant now = Instant.now();
+        revokedTokenRepository.save(RevokedTokenEntity.builder()
+                .jti(jti)
+                .fecha_creacion(now)
+                .fecha_expiracion(Instant.ofEpochMilli(expiresAt))
+                .build());
+        addToken(jti, expiresAt);
+    }
+
+    /**
+     * Revoca todos los tokens de acceso emitidos hasta ahora para el usuario y todos sus refresh tokens.
+     * Se usa al bloquear la cuenta y al cambiar o resetear la contraseña.
+     */
+    @Transactional
+    public void revokeAllForUser(String username) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plusMillis(accessTokenExpiration);
+        revokedTokenRepository.save(RevokedTokenEntity.builder()
+                .username(username)
+                .revocado_desde(now)
+                .fecha_creacion(now)
+                .fecha_expiracion(expiresAt)
+                .build());
+        refreshTokenRepository.revokeAllByUsername(username);
+        addUser(username, now.getEpochSecond(), expiresAt.toEpochMilli());
+        log.info("Revocados todos los tokens del usuario '{}'.", username);
+    }
+
+    /**
+     * Incorpora las revocaciones creadas por otros nodos desde la última sincronización.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:10000}", initialDelayString = "${jwt.revocation.sync-interval:10000}")
+    public void synchronize() {
+        Instant now = Instant.now();
+        Instant since = lastSync.equals(Instant.EPOCH) ? Instant.EPOCH : lastSync.minus(SYNC_OVERLAP);
+        List<RevokedTokenEntity> rows = revokedTokenRepository.findActiveCreatedSince(now, since);
+        for (RevokedTokenEntity row : rows) {
+            if (row.getJti() != null) {
+                addToken(row.getJti(), row.getFecha_expiracion().toEpochMilli());
+            } else if (row.getUsername() != null && row.getRevocado_desde() != null) {
+                addUser(row.getUsername(), row.getRevocado_desde().getEpochSecond(), row.getFecha_expiracion().toEpochMilli());
+            }
+        }
+        lastSync = now;
+    }
+
+    /**
+     * Descarta las revocaciones cuyos tokens ya expiraron y reconstruye el filtro de Bloom sin ellas.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval:300000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedUsers.values().removeIf(revocation -> revocation.expiresAt() <= now);
+        revokedTokenRepository.deleteExpired(Instant.ofEpochMilli(now));
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, 2L * (revokedTokens.size() + revokedUsers.size())), 0.01);
+        revokedTokens.keySet().forEach(jti -> rebuilt.put("j:" + jti));
+        revokedUsers.keySet().forEach(username -> rebuilt.put("u:" + username));
+        bloomFilter = rebuilt;
+        // Lo que se haya revocado durante la reconstrucción se vuelve a añadir al filtro nuevo.
+        revokedTokens.keySet().forEach(jti -> rebuilt.put("j:" + jti));
+        revokedUsers.keySet().forEach(username -> rebuilt.put("u:" + username));
+    }
+
+    public Map<String, Object> stats() {
+        BloomFilter filter = bloomFilter;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("checks", checks.sum());
+        stats.put("bloomPositives", bloomPositives.sum());
+        stats.put("revokedHits", revokedHits.sum());
+        stats.put("revokedTokens", revokedTokens.size());
+        stats.put("revokedUsers", revokedUsers.size());
+        stats.put("bloomExpectedFalsePositiveRate", filter.expectedFalsePositiveRate());
+        stats.put("bloomMemoryBytes", filter.memoryBytes());
+        return stats;
+    }
+
+    // Primero el mapa exacto y después el filtro: un lector nunca ve el Bloom positivo sin la entrada.
+    private void addToken(String jti, long expiresAt) {
+        revokedTokens.merge(jti, expiresAt, Math::max);
+        bloomFilter.put("j:" + jti);
+    }
+
+    private void addUser(String username, long revokedSinceSeconds, long expiresAt) {
+        revokedUsers.merge(username, new UserRevocation(revokedSinceSeconds, expiresAt),
+                (a, b) -> new UserRevocation(Math.max(a.revokedSinceSeconds(), b.revokedSinceSeconds()),
+                        Math.max(a.expiresAt(), b.expiresAt())));
+        bloomFilter.put("u:" + username);
+    }
+}
@@ -0,0 +1,19 @@
+package iscm.manageruser.security.jwt;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * Resultado de verificar un token JWT: la autenticación ya construida (username + autoridades),
+ * su identificador y los instantes de emisión y expiración, en milisegundos desde epoch.
+ *
+ * @param authentication La autenticación lista para colocar en el SecurityContext.
+ * @param jti            El claim 'jti' del token, o null en tokens emitidos antes de añadirlo.
+ * @param issuedAt       El claim 'iat' del token, en milisegundos.
+ * @param expiresAt      El claim 'exp' del token, en milisegundos.
+ */
+public record VerifiedToken(Authentication authentication, String jti, long issuedAt, long expiresAt) {
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
@@ -0,0 +1,180 @@
+package iscm.manageruser.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.security.RoleAuthorities;
+import iscm.manageruser.security.RoleMaskAuthenticationToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché acotada de tokens ya verificados.
+ * La clave es el digest SHA-256 del token (nunca el token en claro) y el valor es la autenticación
+ * ya construida, de modo que una petición repetida con el mismo token no vuelve a verificar la firma
+ * RSA ni a decodificar el JSON. Cada entrada caduca en el 'exp' del propio token.
+ * La lista de revocación se consulta siempre, también en los aciertos de caché.
+ */
+@Component
+@Slf4j
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible en esta JVM", e);
+        }
+    });
+
+    private final JwtUtils jwtUtils;
+    private final TokenRevocationStore revocationStore;
+    private final int maxSize;
+    private final ConcurrentHashMap<String, VerifiedToken> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedTokenCache(JwtUtils jwtUtils, TokenRevocationStore revocationStore,
+                              @Value("${jwt.cache.max-size:10000}") int maxSize) {
+        this.jwtUtils = jwtUtils;
+        this.revocationStore = revocationStore;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Devuelve el token verificado desde la caché o, si no está, lo verifica una única vez y lo almacena.
+     * @param token El token JWT compacto (sin el prefijo "Bearer ").
+     * @return el token verificado, o vacío si la firma es inválida o el token ha expirado o sido revocado.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        return verifySignature(token).filter(verified -> !revocationStore.isRevoked(verified));
+    }
+
+    private Optional<VerifiedToken> verifySignature(String token) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+
+        VerifiedToken cached = cache.get(key);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            if (cache.remove(key, cached)) {
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        Claims claims;
+        try {
+            claims = jwtUtils.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("Token JWT inválido o expirado: {}", e.getMessage());
+            return Optional.empty();
+        }
+
+        VerifiedToken verified = toVerifiedToken(claims);
+        ensureCapacity();
+        cache.put(key, verified);
+        return Optional.of(verified);
+    }
+
+    /**
+     * Estadísticas de uso de la caché (aciertos, fallos, expulsiones y tamaño actual).
+     */
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.sum());
+        stats.put("size", cache.size());
+        stats.put("maxSize", maxSize);
+        return stats;
+    }
+
+    /**
+     * Elimina periódicamente las entradas cuyo token ya expiró.
+     */
+    @Scheduled(fixedDelayString = "${jwt.cache.purge-interval:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        cache.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().isExpired(now);
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+    }
+
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        RoleMaskAuthenticationToken authentication =
+                new RoleMaskAuthenticationToken(claims.getSubject(), roleMask(claims));
+        long issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L;
+        return new VerifiedToken(authentication, claims.getId(), issuedAt, claims.getExpiration().getTime());
+    }
+
+    // Los tokens nuevos llevan la máscara 'rm'; los emitidos antes de la migración, la lista de cadenas 'roles'.
+    private static long roleMask(Claims claims) {
+        Object mask = claims.get(JwtUtils.ROLE_MASK_CLAIM);
+        if (mask instanceof Number number) {
+            return number.longValue();
+        }
+        List<?> legacyRoles = claims.get(JwtUtils.LEGACY_ROLES_CLAIM, List.class);
+        if (legacyRoles == null) {
+            return 0L;
+        }
+        long legacyMask = 0L;
+        for (Object role : legacyRoles) {
+            String name = String.valueOf(role);
+            ERole eRole = name.startsWith(RoleAuthorities.ROLE_PREFIX)
+                    ? RoleAuthorities.fromAuthority(name)
+                    : RoleAuthorities.fromName(name);
+            if (eRole != null) {
+                legacyMask |= RoleAuthorities.bit(eRole);
+            }
+        }
+        return legacyMask;
+    }
+
+    // Mantiene la caché acotada: primero descarta los expirados y, si aún está llena, libera un 10%.
+    private void ensureCapacity() {
+        if (cache.size() < maxSize) {
+            return;
+        }
+        purgeExpired();
+        int toEvict = cache.size() - (maxSize - maxSize / 10);
+        Iterator<String> iterator = cache.keySet().iterator();
+        while (toEvict > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+            toEvict--;
+        }
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+}
@@ -0,0 +1,11 @@
+package iscm.manageruser.service;
+
+/**
+ * Par de tokens emitido en una renovación.
+ *
+ * @param accessToken  El nuevo token de acceso (JWT de corta duración).
+ * @param refreshToken El nuevo refresh token opaco; el anterior queda inutilizado.
+ * @param username     El usuario al que pertenecen los tokens.
+ */
+public record IssuedTokens(String accessToken, String refreshToken, String username) {
+}
@@ -0,0 +1,8 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.model.UserEntity;
+
+public interface RefreshTokenService {
+    String createRefreshToken(UserEntity user);
+    IssuedTokens refresh(String refreshToken);
+}
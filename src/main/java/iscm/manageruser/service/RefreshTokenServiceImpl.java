@@ -0,0 +1,127 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.UnauthorizedException;
+import iscm.manageruser.model.RefreshTokenEntity;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.RefreshTokenRepository;
+import iscm.manageruser.security.jwt.JwtUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenServiceImpl.class);
+    private static final SecureRandom secureRandom = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtUtils jwtUtils;
+    private final long refreshExpiration;
+
+    public RefreshTokenServiceImpl(RefreshTokenRepository refreshTokenRepository, JwtUtils jwtUtils,
+                                   @Value("${jwt.refresh.expiration:604800000}") long refreshExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtUtils = jwtUtils;
+        this.refreshExpiration = refreshExpiration;
+    }
+
+    /**
+     * Emite el primer refresh token de una nueva familia (se llama tras un login correcto).
+     */
+    @Override
+    @Transactional
+    public String createRefreshToken(UserEntity user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Canjea un refresh token por un nuevo token de acceso y un nuevo refresh token.
+     * Cuesta una consulta indexada por hash, una actualización condicional, una inserción y una firma;
+     * no se verifica ninguna contraseña. Si el token ya había sido rotado, se revoca toda su familia.
+     */
+    @Override
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public IssuedTokens refresh(String refreshToken) {
+        RefreshTokenEntity current = refreshTokenRepository.findByTokenHashWithUser(hash(refreshToken))
+                .orElseThrow(() -> new UnauthorizedException("Refresh token inválido."));
+
+        if (current.isRevocado()) {
+            throw new UnauthorizedException("El refresh token ha sido revocado. Inicie sesión nuevamente.");
+        }
+        if (!current.getFecha_expiracion().isAfter(Instant.now())) {
+            throw new UnauthorizedException("El refresh token ha expirado. Inicie sesión nuevamente.");
+        }
+
+        // La marca es condicional: si otra petición ya rotó este token, se trata como reutilización.
+        if (current.isUsado() || refreshTokenRepository.markAsUsed(current.getId()) == 0) {
+            refreshTokenRepository.revokeFamily(current.getFamilia());
+            logger.warn("Reutilización de refresh token detectada para el usuario '{}'. Se revoca la familia {}.",
+                    current.getUser().getUsername(), current.getFamilia());
+            throw new UnauthorizedException("El refresh token ya fue utilizado. Inicie sesión nuevamente.");
+        }
+
+        UserEntity user = current.getUser();
+        if (user.isBloqueado()) {
+            refreshTokenRepository.revokeFamily(current.getFamilia());
+            throw new UnauthorizedException("El usuario está bloqueado.");
+        }
+
+        String newRefreshToken = issue(user, current.getFamilia());
+        return new IssuedTokens(jwtUtils.generateAccessToken(user), newRefreshToken, user.getUsername());
+    }
+
+    /**
+     * Elimina de la tabla los refresh tokens ya expirados.
+     */
+    @Scheduled(cron = "${jwt.refresh.cleanup-cron:0 30 3 * * *}")
+    @Transactional
+    public void deleteExpiredTokens() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.info("Eliminados {} refresh tokens expirados.", deleted);
+        }
+    }
+
+    // --- Métodos de ayuda privados ---
+
+    private String issue(UserEntity user, String familia) {
+        byte[] randomBytes = new byte[32];
+        secureRandom.nextBytes(randomBytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+
+        Instant now = Instant.now();
+        refreshTokenRepository.save(RefreshTokenEntity.builder()
+                .token_hash(hash(token))
+                .familia(familia)
+                .user(user)
+                .fecha_creacion(now)
+                .fecha_expiracion(now.plusMillis(refreshExpiration))
+                .usado(false)
+                .revocado(false)
+                .build());
+        return token;
+    }
+
+    // El token tiene 256 bits aleatorios: basta un digest rápido, no hace falta bcrypt.
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible en esta JVM", e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.BadRequestException;
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.model.RoleEntity;
+import iscm.manageruser.repositories.RoleRepository;
+import iscm.manageruser.security.RoleAuthorities;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registro inmutable de los ids de la tabla 'roles', cargado una sola vez al arrancar.
+ * Los roles son un enum fijo, así que asignar roles a un usuario no necesita consultar la BD: se usan
+ * referencias (getReference) que Hibernate no inicializa y que solo aportan la clave foránea.
+ */
+@Component
+@Slf4j
+public class RoleRegistry {
+
+    private final RoleRepository roleRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Map<ERole, Long> idsByRole;
+    private volatile Map<Long, ERole> rolesById;
+
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    /**
+     * Registra los roles ya sincronizados con la BD. Lo llama AdminUserInitializer al arrancar.
+     */
+    public synchronized void load(Iterable<RoleEntity> roles) {
+        Map<ERole, Long> ids = new EnumMap<>(ERole.class);
+        Map<Long, ERole> names = new HashMap<>();
+        for (RoleEntity role : roles) {
+            ids.put(role.getName(), role.getId());
+            names.put(role.getId(), role.getName());
+        }
+        idsByRole = Collections.unmodifiableMap(ids);
+        rolesById = Collections.unmodifiableMap(names);
+        log.info("Registro de roles cargado: {} roles.", ids.size());
+    }
+
+    /**
+     * Referencia al rol para asignarlo a un usuario, sin SELECT. Debe usarse dentro de una transacción.
+     */
+    public RoleEntity reference(ERole role) {
+        Long id = idsByRole().get(role);
+        if (id == null) {
+            throw new IllegalStateException("El rol " + role + " no existe en la base de datos.");
+        }
+        return entityManager.getReference(RoleEntity.class, id);
+    }
+
+    /**
+     * Convierte los nombres recibidos en una petición en referencias a sus roles.
+     * Un nombre desconocido es un error de la petición.
+     */
+    public Set<RoleEntity> resolve(Collection<String> roleNames) {
+        return references(parse(roleNames));
+    }
+
+    /**
+     * Valida los nombres de rol recibidos en una petición sin crear referencias, así que puede usarse
+     * fuera de una transacción. Un nombre desconocido es un error de la petición.
+     */
+    public Set<ERole> parse(Collection<String> roleNames) {
+        Set<ERole> roles = EnumSet.noneOf(ERole.class);
+        for (String roleName : roleNames) {
+            ERole role = roleName == null ? null : RoleAuthorities.fromName(roleName.toUpperCase(Locale.ROOT));
+            if (role == null) {
+                throw new BadRequestException("El rol no existe: " + roleName);
+            }
+            roles.add(role);
+        }
+        return roles;
+    }
+
+    /**
+     * Referencias a varios roles ya validados. Debe usarse dentro de una transacción.
+     */
+    public Set<RoleEntity> references(Set<ERole> roles) {
+        Set<RoleEntity> references = new HashSet<>();
+        for (ERole role : roles) {
+            references.add(reference(role));
+        }
+        return references;
+    }
+
+    /**
+     * Nombre de un rol a partir de su id, sin inicializar la referencia.
+     */
+    public ERole nameOf(RoleEntity role) {
+        ERole name = rolesById().get(role.getId());
+        return name != null ? name : role.getName();
+    }
+
+    private Map<ERole, Long> idsByRole() {
+        if (idsByRole == null) {
+            loadFromDatabase();
+        }
+        return idsByRole;
+    }
+
+    private Map<Long, ERole> rolesById() {
+        if (rolesById == null) {
+            loadFromDatabase();
+        }
+        return rolesById;
+    }
+
+    // Solo si se usa antes de que termine la inicialización (por ejemplo, una petición temprana).
+    private synchronized void loadFromDatabase() {
+        if (idsByRole == null) {
+            load(roleRepository.findAll());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.request.IntrospectionResponseDTO;
+
+import java.util.List;
+
+public interface TokenIntrospectionService {
+    List<IntrospectionResponseDTO> introspect(List<String> tokens);
+}
@@ -0,0 +1,88 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.BadRequestException;
+import iscm.manageruser.request.IntrospectionResponseDTO;
+import iscm.manageruser.security.jwt.VerifiedToken;
+import iscm.manageruser.security.jwt.VerifiedTokenCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class TokenIntrospectionServiceImpl implements TokenIntrospectionService {
+
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final int maxBatchSize;
+    // Pool propio, del tamaño del número de núcleos: la verificación de firmas es puro CPU.
+    private final ExecutorService executor;
+
+    public TokenIntrospectionServiceImpl(VerifiedTokenCache verifiedTokenCache,
+                                         @Value("${jwt.introspection.max-batch:500}") int maxBatchSize) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.maxBatchSize = maxBatchSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "introspection-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Inspecciona un lote de tokens verificándolos en paralelo con el mismo camino que el filtro de autorización
+     * (caché de tokens verificados + lista de revocación). Los resultados se devuelven en el orden de entrada.
+     */
+    @Override
+    public List<IntrospectionResponseDTO> introspect(List<String> tokens) {
+        if (tokens.size() > maxBatchSize) {
+            throw new BadRequestException("El lote no puede superar los " + maxBatchSize + " tokens.");
+        }
+        if (tokens.size() == 1) {
+            return List.of(introspect(tokens.get(0)));
+        }
+
+        List<CompletableFuture<IntrospectionResponseDTO>> futures = tokens.stream()
+                .map(token -> CompletableFuture.supplyAsync(() -> introspect(token), executor))
+                .toList();
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private IntrospectionResponseDTO introspect(String token) {
+        if (token == null || token.isBlank()) {
+            return IntrospectionResponseDTO.inactive();
+        }
+        // Los tokens ya verificados se sirven desde la caché hasta su expiración.
+        return verifiedTokenCache.verify(token)
+                .map(this::toResponse)
+                .orElseGet(IntrospectionResponseDTO::inactive);
+    }
+
+    private IntrospectionResponseDTO toResponse(VerifiedToken verified) {
+        List<String> roles = verified.authentication().getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(authority -> authority.startsWith("ROLE_") ? authority.substring(5) : authority)
+                .toList();
+        return new IntrospectionResponseDTO(
+                true,
+                verified.authentication().getName(),
+                roles,
+                verified.expiresAt() / 1000,
+                verified.issuedAt() > 0 ? verified.issuedAt() / 1000 : null,
+                verified.jti()
+        );
+    }
+}
@@ -0,0 +1,31 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.request.BulkCreateResultDTO;
+import iscm.manageruser.request.BulkRoleChangeDTO;
+import iscm.manageruser.request.BulkUpdateResultDTO;
+import iscm.manageruser.request.CreateUserDTO;
+import iscm.manageruser.request.UserSelectionDTO;
+
+import java.util.List;
+
+public interface UserBulkService {
+    /**
+     * Crea todos los usuarios válidos de la lista e informa de los errores de cada elemento rechazado.
+     */
+    BulkCreateResultDTO createUsers(List<CreateUserDTO> users);
+
+    /**
+     * Desbloquea a los usuarios seleccionados con una sola sentencia.
+     */
+    BulkUpdateResultDTO unlockUsers(UserSelectionDTO selection);
+
+    /**
+     * Hace caducar hoy la contraseña de los usuarios seleccionados: deberán cambiarla en su próximo login.
+     */
+    BulkUpdateResultDTO expirePasswords(UserSelectionDTO selection);
+
+    /**
+     * Asigna y quita roles a los usuarios seleccionados.
+     */
+    BulkUpdateResultDTO changeRoles(BulkRoleChangeDTO change);
+}
@@ -0,0 +1,331 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.BadRequestException;
+import iscm.manageruser.mapper.UserMapper;
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UserKeyView;
+import iscm.manageruser.request.BulkCreateItemResultDTO;
+import iscm.manageruser.request.BulkCreateResultDTO;
+import iscm.manageruser.request.BulkRoleChangeDTO;
+import iscm.manageruser.request.BulkUpdateResultDTO;
+import iscm.manageruser.request.CreateUserDTO;
+import iscm.manageruser.request.UserFilter;
+import iscm.manageruser.request.UserSelectionDTO;
+import iscm.manageruser.security.BoundedPasswordEncoder;
+import iscm.manageruser.security.KnownUsernameFilter;
+import iscm.manageruser.security.LoginAttemptTracker;
+import iscm.manageruser.utils.TextNormalizer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Alta masiva de usuarios. Todo el lote se valida antes de escribir: cada elemento por separado, la unicidad
+ * dentro del lote en memoria y contra la BD con una única consulta IN. Las contraseñas de los elementos
+ * válidos se codifican en paralelo en el pool de hash, fuera de la transacción, y después todos los usuarios
+ * se insertan en una sola transacción: con ids reservados por bloques Hibernate agrupa los INSERT de 'users'
+ * y de 'user_roles' en lotes JDBC (hibernate.jdbc.batch_size).
+ * Las operaciones administrativas masivas (desbloqueo, caducidad de contraseñas, roles) se ejecutan como
+ * sentencias sobre conjuntos en la BD, sin cargar los usuarios; como no se sabe qué filas cambiaron, después
+ * se descartan las respuestas cacheadas afectadas y se concilian las estadísticas del directorio.
+ */
+@Service
+@Slf4j
+public class UserBulkServiceImpl implements UserBulkService {
+
+    private final UserRepository userRepository;
+    private final RoleRegistry roleRegistry;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final KnownUsernameFilter knownUsernameFilter;
+    private final UserSearchIndex userSearchIndex;
+    private final UserResponseCache userResponseCache;
+    private final UserDirectoryStats userDirectoryStats;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final int maxItems;
+
+    public UserBulkServiceImpl(UserRepository userRepository, RoleRegistry roleRegistry, BoundedPasswordEncoder passwordEncoder,
+                               UserMapper userMapper, Validator validator, PlatformTransactionManager transactionManager,
+                               KnownUsernameFilter knownUsernameFilter, UserSearchIndex userSearchIndex,
+                               UserResponseCache userResponseCache, UserDirectoryStats userDirectoryStats,
+                               LoginAttemptTracker loginAttemptTracker,
+                               @Value("${users.bulk.max-items:1000}") int maxItems) {
+        this.userRepository = userRepository;
+        this.roleRegistry = roleRegistry;
+        this.passwordEncoder = passwordEncoder;
+        this.userMapper = userMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.knownUsernameFilter = knownUsernameFilter;
+        this.userSearchIndex = userSearchIndex;
+        this.userResponseCache = userResponseCache;
+        this.userDirectoryStats = userDirectoryStats;
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.maxItems = maxItems;
+    }
+
+    @Override
+    public BulkCreateResultDTO createUsers(List<CreateUserDTO> users) {
+        if (users == null || users.isEmpty()) {
+            throw new BadRequestException("La lista de usuarios está vacía.");
+        }
+        if (users.size() > maxItems) {
+            throw new BadRequestException("Un alta masiva admite como máximo " + maxItems + " usuarios.");
+        }
+        long start = System.currentTimeMillis();
+        int total = users.size();
+
+        // 1) Cada elemento por separado: anotaciones del DTO y nombres de rol.
+        List<List<String>> errors = new ArrayList<>(total);
+        List<Set<ERole>> roles = new ArrayList<>(total);
+        for (CreateUserDTO user : users) {
+            List<String> itemErrors = new ArrayList<>();
+            Set<ERole> itemRoles = null;
+            if (user == null) {
+                itemErrors.add("El elemento está vacío.");
+            } else {
+                for (ConstraintViolation<CreateUserDTO> violation : validator.validate(user)) {
+                    itemErrors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+                }
+                itemErrors.sort(null);
+                if (user.getRoles() != null) {
+                    try {
+                        itemRoles = roleRegistry.parse(user.getRoles());
+                    } catch (BadRequestException e) {
+                        itemErrors.add(e.getMessage());
+                    }
+                }
+            }
+            errors.add(itemErrors);
+            roles.add(itemRoles);
+        }
+
+        // 2) Unicidad dentro del lote y contra la BD, con la misma comparación que MySQL (sin mayúsculas ni acentos).
+        Map<String, Integer> indexByUsername = new HashMap<>();
+        Map<String, Integer> indexByEmail = new HashMap<>();
+        for (int i = 0; i < total; i++) {
+            if (errors.get(i).isEmpty()) {
+                CreateUserDTO user = users.get(i);
+                Integer first = indexByUsername.putIfAbsent(normalize(user.getUsername()), i);
+                if (first != null) {
+                    errors.get(i).add("El nombre de usuario está repetido en el elemento " + first + ".");
+                }
+                first = indexByEmail.putIfAbsent(normalize(user.getEmail()), i);
+                if (first != null) {
+                    errors.get(i).add("El email está repetido en el elemento " + first + ".");
+                }
+            }
+        }
+        List<Integer> valid = validIndexes(errors);
+        if (!valid.isEmpty()) {
+            Set<String> usernames = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            for (int i : valid) {
+                usernames.add(users.get(i).getUsername());
+                emails.add(users.get(i).getEmail());
+            }
+            for (UserKeyView existing : userRepository.findKeysByUsernameInOrEmailIn(usernames, emails)) {
+                Integer index = indexByUsername.get(normalize(existing.username()));
+                if (index != null) {
+                    errors.get(index).add("El nombre de usuario ya está registrado.");
+                }
+                index = indexByEmail.get(normalize(existing.email()));
+                if (index != null) {
+                    errors.get(index).add("El email ya está registrado.");
+                }
+            }
+            valid = validIndexes(errors);
+        }
+
+        // 3) Hash en paralelo, fuera de la transacción para no retener una conexión mientras se calcula.
+        List<String> rawPasswords = new ArrayList<>(valid.size());
+        for (int i : valid) {
+            rawPasswords.add(users.get(i).getPassword());
+        }
+        List<String> encodedPasswords = passwordEncoder.encodeAll(rawPasswords);
+
+        // 4) Una sola transacción para todas las inserciones: las referencias a los roles deben crearse dentro.
+        List<Integer> toCreate = valid;
+        List<UserEntity> created;
+        try {
+            created = transactionTemplate.execute(status -> {
+                List<UserEntity> entities = new ArrayList<>(toCreate.size());
+                for (int j = 0; j < toCreate.size(); j++) {
+                    int i = toCreate.get(j);
+                    entities.add(userMapper.toUserEntity(users.get(i), encodedPasswords.get(j), roleRegistry.references(roles.get(i))));
+                }
+                List<UserEntity> saved = new ArrayList<>(entities.size());
+                userRepository.saveAll(entities).forEach(saved::add);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otro alta confirmó el mismo usuario o email entre la comprobación y la inserción.
+            throw new BadRequestException("Error de datos: algún nombre de usuario o email del lote se registró mientras se procesaba. "
+                    + "Vuelva a enviar el lote.");
+        }
+
+        // 5) Ya confirmados: se publican en las estructuras en memoria y se arma la respuesta.
+        Map<Integer, UserEntity> createdByIndex = new HashMap<>();
+        for (int j = 0; j < toCreate.size(); j++) {
+            UserEntity user = created.get(j);
+            createdByIndex.put(toCreate.get(j), user);
+            knownUsernameFilter.add(user.getUsername());
+            userSearchIndex.index(user);
+            userResponseCache.invalidate(user.getUsername());
+            userDirectoryStats.update(null, userDirectoryStats.viewOf(user));
+        }
+        List<BulkCreateItemResultDTO> items = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            UserEntity user = createdByIndex.get(i);
+            String username = users.get(i) == null ? null : users.get(i).getUsername();
+            items.add(new BulkCreateItemResultDTO(i, username, user != null,
+                    user == null ? null : userMapper.toUserResponseDTO(user), errors.get(i)));
+        }
+
+        log.info("Alta masiva: {} usuarios creados y {} rechazados en {} ms.",
+                created.size(), total - created.size(), System.currentTimeMillis() - start);
+        return new BulkCreateResultDTO(total, created.size(), total - created.size(), items);
+    }
+
+    @Override
+    public BulkUpdateResultDTO unlockUsers(UserSelectionDTO selection) {
+        List<String> usernames = usernames(selection);
+        UserFilter filter = filter(selection);
+        int updated = transactionTemplate.execute(status -> userRepository.unlockUsers(usernames, filter, Instant.now()));
+        if (usernames != null) {
+            // Los bloqueados en memoria que no se olvidan aquí se re-siembran al ver la BD desbloqueada.
+            usernames.forEach(loginAttemptTracker::reset);
+        }
+        afterBulkUpdate(usernames, updated);
+        log.info("Desbloqueo masivo: {} usuarios desbloqueados.", updated);
+        return new BulkUpdateResultDTO(updated, 0, 0);
+    }
+
+    @Override
+    public BulkUpdateResultDTO expirePasswords(UserSelectionDTO selection) {
+        List<String> usernames = usernames(selection);
+        UserFilter filter = filter(selection);
+        // El login considera caducada la contraseña desde el mismo día de su fecha de caducidad.
+        int updated = transactionTemplate.execute(status ->
+                userRepository.expirePasswords(usernames, filter, LocalDate.now(), Instant.now()));
+        afterBulkUpdate(usernames, updated);
+        log.info("Caducidad masiva de contraseñas: {} usuarios.", updated);
+        return new BulkUpdateResultDTO(updated, 0, 0);
+    }
+
+    @Override
+    public BulkUpdateResultDTO changeRoles(BulkRoleChangeDTO change) {
+        List<String> usernames = usernames(change);
+        UserFilter filter = filter(change);
+        Set<ERole> addRoles = change.getAddRoles() == null ? EnumSet.noneOf(ERole.class) : roleRegistry.parse(change.getAddRoles());
+        Set<ERole> removeRoles = change.getRemoveRoles() == null ? EnumSet.noneOf(ERole.class) : roleRegistry.parse(change.getRemoveRoles());
+        if (addRoles.isEmpty() && removeRoles.isEmpty()) {
+            throw new BadRequestException("Indique algún rol que asignar o quitar.");
+        }
+        if (!Collections.disjoint(addRoles, removeRoles)) {
+            throw new BadRequestException("Un mismo rol no puede asignarse y quitarse a la vez.");
+        }
+
+        // Primero la versión, con los roles aún sin cambiar: así cada usuario modificado se cuenta y se versiona
+        // una sola vez. Se quitan los roles al final, porque el filtro por rol puede ser uno de los que se quitan.
+        Instant now = Instant.now();
+        int[] counts = transactionTemplate.execute(status -> new int[]{
+                userRepository.touchUsersForRoleChange(usernames, filter, addRoles, removeRoles, now),
+                userRepository.addRoles(usernames, filter, addRoles),
+                userRepository.removeRoles(usernames, filter, removeRoles)
+        });
+        afterBulkUpdate(usernames, counts[0]);
+        log.info("Cambio masivo de roles: {} usuarios, {} roles asignados y {} quitados.", counts[0], counts[1], counts[2]);
+        return new BulkUpdateResultDTO(counts[0], counts[1], counts[2]);
+    }
+
+    // Los cambios ya están confirmados. La versión incrementada basta para que la caché no sirva respuestas
+    // obsoletas, pero se descartan para liberar la memoria; los contadores se recalculan desde la BD.
+    private void afterBulkUpdate(List<String> usernames, int updated) {
+        if (updated == 0) {
+            return;
+        }
+        if (usernames != null) {
+            usernames.forEach(userResponseCache::invalidate);
+        } else {
+            userResponseCache.invalidateAll();
+        }
+        try {
+            userDirectoryStats.reconcile();
+        } catch (RuntimeException e) {
+            // La conciliación periódica corregirá los contadores.
+            log.warn("No se pudieron conciliar las estadísticas tras la operación masiva: {}", e.getMessage());
+        }
+    }
+
+    // null si la selección no incluye lista de usuarios; una lista vacía se rechaza porque no selecciona a nadie.
+    private List<String> usernames(UserSelectionDTO selection) {
+        if (selection == null || selection.getUsernames() == null) {
+            return null;
+        }
+        Set<String> usernames = new LinkedHashSet<>();
+        for (String username : selection.getUsernames()) {
+            if (username != null && !username.isBlank()) {
+                usernames.add(username.strip());
+            }
+        }
+        if (usernames.isEmpty()) {
+            throw new BadRequestException("La lista de usuarios está vacía.");
+        }
+        if (usernames.size() > maxItems) {
+            throw new BadRequestException("Una operación masiva admite como máximo " + maxItems + " usuarios.");
+        }
+        return new ArrayList<>(usernames);
+    }
+
+    private UserFilter filter(UserSelectionDTO selection) {
+        if (selection == null || (selection.getUsernames() == null && isBlank(selection.getSucursal())
+                && isBlank(selection.getCiudad()) && isBlank(selection.getRole()))) {
+            throw new BadRequestException("Indique una lista de usuarios o al menos un filtro (sucursal, ciudad o rol).");
+        }
+        return UserFilter.builder()
+                .sucursal(isBlank(selection.getSucursal()) ? null : selection.getSucursal())
+                .ciudad(isBlank(selection.getCiudad()) ? null : selection.getCiudad())
+                .role(isBlank(selection.getRole()) ? null : roleRegistry.parse(List.of(selection.getRole())).iterator().next())
+                .build();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static List<Integer> validIndexes(List<List<String>> errors) {
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < errors.size(); i++) {
+            if (errors.get(i).isEmpty()) {
+                valid.add(i);
+            }
+        }
+        return valid;
+    }
+
+    private static String normalize(String value) {
+        return TextNormalizer.fold(value.stripTrailing());
+    }
+}
@@ -2,10 +2,13 @@ package iscm.manageruser.service;
 
 import iscm.manageruser.model.UserEntity;
 import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.security.AuthenticatedUser;
+import iscm.manageruser.security.KnownUsernameFilter;
+import iscm.manageruser.security.LoginAttemptTracker;
+import iscm.manageruser.security.RoleAuthorities;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -15,44 +18,61 @@ import java.util.Collection;
 import java.util.stream.Collectors;
 
 @Service
-public class UserDetailServiceImpl implements UserDetailsService {
+public class UserDetailServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final KnownUsernameFilter knownUsernameFilter;
 
-    public UserDetailServiceImpl(UserRepository userRepository) {
+    public UserDetailServiceImpl(UserRepository userRepository, LoginAttemptTracker loginAttemptTracker,
+                                 KnownUsernameFilter knownUsernameFilter) {
         this.userRepository = userRepository;
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.knownUsernameFilter = knownUsernameFilter;
     }
 
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
+        // 0. Si el usuario definitivamente no existe no se consulta la BD. DaoAuthenticationProvider
+        // calcula igualmente un hash ficticio al recibir UsernameNotFoundException, así que el tiempo de
+        // respuesta no revela qué usuarios existen.
+        if (!knownUsernameFilter.mightExist(username)) {
+            throw new UsernameNotFoundException("El usuario '" + username + "' no existe.");
+        }
+
         // 1. Usamos el metodo optimizado que trae los roles y devuelve un Optional
         UserEntity userEntity = userRepository.findByUsernameWithRoles(username)
                 .orElseThrow(() -> new UsernameNotFoundException("El usuario '" + username + "' no existe."));
+        // Siembra el contador de intentos en memoria con el estado ya leído, sin otra consulta
+        loginAttemptTracker.seed(userEntity);
 
         // 2. Mapeamos los roles a las autoridades de Spring Security. Esto ahora es seguro.
         Collection<? extends GrantedAuthority> authorities = userEntity.getRoles()
                 .stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_".concat(role.getName().name())))
+                .map(role -> RoleAuthorities.authorityOf(role.getName())) // instancias compartidas, sin concatenar cadenas
                 .collect(Collectors.toSet());
 
         // 3. Mapeamos el estado de nuestro UserEntity a los flags de Spring Security
-        boolean accountNonExpired = true;
         boolean credentialsNonExpired = isCredentialsNonExpired(userEntity.getFecha_caducidad_password());
-        boolean enabled = true;
-        boolean accountNonLocked = !userEntity.isBloqueado();
 
-        // 4. Creamos y devolvemos el objeto UserDetails con la lógica correcta
-        return new User(
-                userEntity.getUsername(),
-                userEntity.getPassword(),
-                enabled,
-                accountNonExpired,
-                credentialsNonExpired,
-                accountNonLocked,
-                authorities
-        );
+        // 4. Devolvemos un principal que conserva el UserEntity: el login lo reutiliza para emitir los tokens
+        // sin volver a consultar la base de datos.
+        return new AuthenticatedUser(userEntity, credentialsNonExpired, authorities);
+    }
+
+    /**
+     * Spring Security la invoca tras un login correcto cuando el hash guardado usa un algoritmo o coste
+     * anterior. No escribe en la BD: el nuevo hash viaja en el principal y se guarda en la misma
+     * actualización con la que el login reinicia los intentos fallidos.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        if (user instanceof AuthenticatedUser authenticatedUser) {
+            authenticatedUser.setUpgradedPassword(newPassword);
+        }
+        return user;
     }
 
     // Metodo auxiliar para mantener el código limpio
@@ -0,0 +1,299 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.ServiceUnavailableException;
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.model.RoleEntity;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.GroupCountView;
+import iscm.manageruser.repositories.projections.PasswordExpiryCountView;
+import iscm.manageruser.repositories.projections.RoleCountView;
+import iscm.manageruser.repositories.projections.UserStatsView;
+import iscm.manageruser.request.UserDirectoryStatsDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Contadores en memoria del directorio de usuarios (por sucursal, ciudad, rol, bloqueo y fecha de caducidad
+ * de la contraseña), para servir las estadísticas sin recorrer la tabla 'users'.
+ * Las escrituras de este nodo aplican su diferencia tras el commit; periódicamente los contadores se
+ * sustituyen por el resultado de consultas GROUP BY sobre columnas indexadas, lo que incorpora los cambios
+ * hechos en otros nodos y corrige cualquier desviación.
+ */
+@Component
+@Slf4j
+public class UserDirectoryStats {
+
+    private final UserRepository userRepository;
+    private final RoleRegistry roleRegistry;
+    private final int defaultExpiringDays;
+    private final int maxExpiringDays;
+
+    private volatile Counters counters = new Counters();
+    private volatile boolean ready;
+    private volatile Instant reconciledAt;
+    // Una sola conciliación a la vez: la periódica y las que piden las operaciones masivas.
+    private final Object reconcileLock = new Object();
+    // Diferencias aplicadas mientras se concilia, para reaplicarlas sobre los contadores nuevos (protegido por this)
+    private List<Consumer<Counters>> changedDuringReconcile;
+
+    private final LongAdder reconciliations = new LongAdder();
+    private final LongAdder lastDrift = new LongAdder();
+    private final LongAdder incrementalUpdates = new LongAdder();
+
+    private static final class Counters {
+        final LongAdder total = new LongAdder();
+        final LongAdder bloqueados = new LongAdder();
+        final ConcurrentHashMap<String, LongAdder> bySucursal = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, LongAdder> byCiudad = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<ERole, LongAdder> byRole = new ConcurrentHashMap<>();
+        // Ordenado por fecha: los caducados y los que caducan en N días son rangos del mapa.
+        final ConcurrentSkipListMap<LocalDate, LongAdder> byPasswordExpiry = new ConcurrentSkipListMap<>();
+
+        void replace(UserStatsView before, UserStatsView after) {
+            if (before != null) {
+                add(before, -1);
+            }
+            if (after != null) {
+                add(after, 1);
+            }
+        }
+
+        private void add(UserStatsView user, int sign) {
+            total.add(sign);
+            if (user.bloqueado()) {
+                bloqueados.add(sign);
+            }
+            add(bySucursal, user.sucursal(), sign);
+            add(byCiudad, user.ciudad(), sign);
+            for (ERole role : user.roles()) {
+                add(byRole, role, sign);
+            }
+            add(byPasswordExpiry, user.fechaCaducidadPassword(), sign);
+        }
+
+        private static <K> void add(Map<K, LongAdder> counts, K key, long value) {
+            if (key != null) {
+                counts.computeIfAbsent(key, k -> new LongAdder()).add(value);
+            }
+        }
+
+        static long sum(Map<?, LongAdder> counts) {
+            return counts.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+    }
+
+    public UserDirectoryStats(UserRepository userRepository, RoleRegistry roleRegistry,
+                              @Value("${users.stats.default-expiring-days:30}") int defaultExpiringDays,
+                              @Value("${users.stats.max-expiring-days:365}") int maxExpiringDays) {
+        this.userRepository = userRepository;
+        this.roleRegistry = roleRegistry;
+        this.defaultExpiringDays = defaultExpiringDays;
+        this.maxExpiringDays = maxExpiringDays;
+    }
+
+    /**
+     * Los campos del usuario que cuentan en las estadísticas, tomados en el momento de la llamada.
+     */
+    public UserStatsView viewOf(UserEntity user) {
+        Set<ERole> roles = EnumSet.noneOf(ERole.class);
+        if (user.getRoles() != null) {
+            for (RoleEntity role : user.getRoles()) {
+                roles.add(roleRegistry.nameOf(role));
+            }
+        }
+        return new UserStatsView(user.getSucursal(), user.getCiudad(), user.isBloqueado(),
+                user.getFecha_caducidad_password(), roles);
+    }
+
+    /**
+     * Aplica a los contadores el cambio de un usuario: before es null en un alta y after en una baja.
+     * Dentro de una transacción se aplica tras el commit.
+     */
+    public void update(UserStatsView before, UserStatsView after) {
+        if (before != null && before.equals(after)) {
+            return;
+        }
+        Consumer<Counters> change = counts -> counts.replace(before, after);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    /**
+     * Registra el bloqueo de una cuenta por intentos fallidos, que no pasa por el servicio de usuarios.
+     */
+    public void recordLock() {
+        apply(counts -> counts.bloqueados.increment());
+    }
+
+    /**
+     * Sustituye los contadores por los de la BD al arrancar, periódicamente y tras una operación masiva (cuyos
+     * cambios no se conocen fila a fila). Todas las consultas leen la misma instantánea (transacción de solo
+     * lectura en REPEATABLE READ, tomada en la primera consulta) y agrupan por columnas indexadas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${users.stats.reconcile-interval:300000}",
+            initialDelayString = "${users.stats.reconcile-interval:300000}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            reconcileCounters();
+        }
+    }
+
+    private void reconcileCounters() {
+        long start = System.currentTimeMillis();
+        Counters reconciled = new Counters();
+        // MySQL fija la instantánea en la primera lectura: se hace bajo el mismo lock que apply() y solo después se
+        // empiezan a capturar diferencias. Una escritura aplicada antes ya está en la instantánea y no se reaplica.
+        synchronized (this) {
+            reconciled.total.add(userRepository.count());
+            changedDuringReconcile = new ArrayList<>();
+        }
+        try {
+            reconciled.bloqueados.add(userRepository.countLocked());
+            for (GroupCountView group : userRepository.countBySucursal()) {
+                Counters.add(reconciled.bySucursal, group.key(), group.count());
+            }
+            for (GroupCountView group : userRepository.countByCiudad()) {
+                Counters.add(reconciled.byCiudad, group.key(), group.count());
+            }
+            for (RoleCountView group : userRepository.countByRole()) {
+                Counters.add(reconciled.byRole, group.role(), group.count());
+            }
+            for (PasswordExpiryCountView group : userRepository.countByPasswordExpiry()) {
+                Counters.add(reconciled.byPasswordExpiry, group.fechaCaducidadPassword(), group.count());
+            }
+            synchronized (this) {
+                changedDuringReconcile.forEach(change -> change.accept(reconciled));
+                // En la primera conciliación no hay contadores previos con los que comparar.
+                long drift = ready ? drift(counters, reconciled) : 0;
+                counters = reconciled;
+                lastDrift.reset();
+                lastDrift.add(drift);
+            }
+        } finally {
+            synchronized (this) {
+                changedDuringReconcile = null;
+            }
+        }
+        reconciledAt = Instant.now();
+        reconciliations.increment();
+        ready = true;
+        log.info("Estadísticas del directorio conciliadas: {} usuarios, desviación {}, en {} ms.",
+                reconciled.total.sum(), lastDrift.sum(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Estadísticas del directorio a partir de los contadores, sin consultar la BD.
+     * @param expiringWithinDays Periodo (días desde hoy) de las contraseñas por caducar; null usa el de por defecto.
+     */
+    public UserDirectoryStatsDTO snapshot(Integer expiringWithinDays) {
+        if (!ready) {
+            throw new ServiceUnavailableException("Las estadísticas del directorio se están calculando.", 1);
+        }
+        int days = expiringWithinDays == null ? defaultExpiringDays : Math.max(0, Math.min(expiringWithinDays, maxExpiringDays));
+        LocalDate today = LocalDate.now();
+        Counters current = counters;
+
+        Map<String, Long> porRol = new TreeMap<>();
+        current.byRole.forEach((role, count) -> putIfPositive(porRol, role.name(), count.sum()));
+        return new UserDirectoryStatsDTO(
+                current.total.sum(),
+                current.bloqueados.sum(),
+                positiveCounts(current.bySucursal),
+                positiveCounts(current.byCiudad),
+                porRol,
+                Counters.sum(current.byPasswordExpiry.headMap(today, false)),
+                Counters.sum(current.byPasswordExpiry.subMap(today, true, today.plusDays(days), true)),
+                days,
+                reconciledAt);
+    }
+
+    public Map<String, Object> stats() {
+        Counters current = counters;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("reconciliations", reconciliations.sum());
+        stats.put("lastReconciledAt", reconciledAt);
+        stats.put("lastDrift", lastDrift.sum());
+        stats.put("incrementalUpdates", incrementalUpdates.sum());
+        stats.put("sucursales", current.bySucursal.size());
+        stats.put("ciudades", current.byCiudad.size());
+        stats.put("passwordExpiryDates", current.byPasswordExpiry.size());
+        return stats;
+    }
+
+    private synchronized void apply(Consumer<Counters> change) {
+        change.accept(counters);
+        incrementalUpdates.increment();
+        if (changedDuringReconcile != null) {
+            changedDuringReconcile.add(change);
+        }
+    }
+
+    private static Map<String, Long> positiveCounts(Map<String, LongAdder> counts) {
+        Map<String, Long> result = new TreeMap<>();
+        counts.forEach((key, count) -> putIfPositive(result, key, count.sum()));
+        return result;
+    }
+
+    private static void putIfPositive(Map<String, Long> result, String key, long count) {
+        if (count > 0) {
+            result.put(key, count);
+        }
+    }
+
+    // Suma de las diferencias absolutas entre los contadores incrementales y los conciliados.
+    private static long drift(Counters incremental, Counters reconciled) {
+        long drift = Math.abs(incremental.total.sum() - reconciled.total.sum())
+                + Math.abs(incremental.bloqueados.sum() - reconciled.bloqueados.sum());
+        drift += drift(incremental.bySucursal, reconciled.bySucursal);
+        drift += drift(incremental.byCiudad, reconciled.byCiudad);
+        drift += drift(incremental.byRole, reconciled.byRole);
+        drift += drift(incremental.byPasswordExpiry, reconciled.byPasswordExpiry);
+        return drift;
+    }
+
+    private static <K> long drift(Map<K, LongAdder> incremental, Map<K, LongAdder> reconciled) {
+        Set<K> keys = new HashSet<>(incremental.keySet());
+        keys.addAll(reconciled.keySet());
+        long drift = 0;
+        for (K key : keys) {
+            LongAdder a = incremental.get(key);
+            LongAdder b = reconciled.get(key);
+            drift += Math.abs((a == null ? 0 : a.sum()) - (b == null ? 0 : b.sum()));
+        }
+        return drift;
+    }
+}
@@ -0,0 +1,11 @@
+package iscm.manageruser.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface UserExportService {
+    /**
+     * Escribe el directorio completo de usuarios en el formato indicado ("ndjson" o "csv").
+     */
+    void exportUsers(String format, OutputStream outputStream) throws IOException;
+}
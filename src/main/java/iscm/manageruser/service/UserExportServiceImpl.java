@@ -0,0 +1,132 @@
+package iscm.manageruser.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import iscm.manageruser.exception.BadRequestException;
+import iscm.manageruser.mapper.UserMapper;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UserView;
+import iscm.manageruser.request.UserResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exportación del directorio de usuarios con memoria constante: los usuarios se leen de un cursor JDBC
+ * de solo avance y cada uno se escribe en la respuesta en cuanto llega, sin construir la lista completa.
+ * Se leen vistas (UserView, una fila por usuario con los roles agregados) y no entidades: nada queda en el
+ * contexto de persistencia, así que no hay que vaciarlo a mitad del recorrido.
+ */
+@Service
+@Slf4j
+public class UserExportServiceImpl implements UserExportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final String CSV_HEADER = "id,username,email,nombreCompleto,sucursal,telefono,direccion,celular,"
+            + "ciudad,cargo,bloqueado,fechaCaducidadPassword,roles";
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+
+    public UserExportServiceImpl(UserRepository userRepository, UserMapper userMapper, ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Rechaza un formato desconocido. El controlador la llama antes de preparar la descarga.
+     */
+    public static void checkFormat(String format) {
+        if (!FORMAT_NDJSON.equals(format) && !FORMAT_CSV.equals(format)) {
+            throw new BadRequestException("Formato de exportación no válido: " + format + " (ndjson o csv).");
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(String format, OutputStream outputStream) throws IOException {
+        checkFormat(format);
+        long start = System.currentTimeMillis();
+        long count;
+        try (Stream<UserView> users = userRepository.streamViews()) {
+            count = FORMAT_CSV.equals(format)
+                    ? writeCsv(users.iterator(), outputStream)
+                    : writeNdjson(users.iterator(), outputStream);
+        }
+        log.info("Exportados {} usuarios en formato {} en {} ms.", count, format, System.currentTimeMillis() - start);
+    }
+
+    private long writeNdjson(Iterator<UserView> users, OutputStream outputStream) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            // El stream pertenece a la respuesta: no se cierra al terminar.
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (users.hasNext()) {
+                objectMapper.writeValue(generator, userMapper.toUserResponseDTO(users.next()));
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<UserView> users, OutputStream outputStream) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        while (users.hasNext()) {
+            UserResponseDTO user = userMapper.toUserResponseDTO(users.next());
+            writer.write(String.valueOf(user.getId()));
+            writeCsvField(writer, user.getUsername());
+            writeCsvField(writer, user.getEmail());
+            writeCsvField(writer, user.getNombreCompleto());
+            writeCsvField(writer, user.getSucursal());
+            writeCsvField(writer, user.getTelefono());
+            writeCsvField(writer, user.getDireccion());
+            writeCsvField(writer, user.getCelular());
+            writeCsvField(writer, user.getCiudad());
+            writeCsvField(writer, user.getCargo());
+            writeCsvField(writer, String.valueOf(user.isBloqueado()));
+            writeCsvField(writer, user.getFechaCaducidadPassword() == null ? null : user.getFechaCaducidadPassword().toString());
+            writeCsvField(writer, String.join("|", user.getRoles()));
+            writer.write("\r\n");
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    // RFC 4180: se entrecomillan los valores con separadores, comillas o saltos de línea.
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
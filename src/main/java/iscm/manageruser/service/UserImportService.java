@@ -0,0 +1,18 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.request.ImportJobDTO;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+public interface UserImportService {
+    /**
+     * Encola la importación de los usuarios de un archivo CSV o XLSX y devuelve su estado inicial.
+     */
+    ImportJobDTO startImport(MultipartFile file) throws IOException;
+
+    /**
+     * Estado actual de una importación.
+     */
+    ImportJobDTO getImport(String id);
+}
@@ -0,0 +1,378 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.BadRequestException;
+import iscm.manageruser.exception.ResourceNotFoundException;
+import iscm.manageruser.exception.ServiceUnavailableException;
+import iscm.manageruser.request.BulkCreateItemResultDTO;
+import iscm.manageruser.request.BulkCreateResultDTO;
+import iscm.manageruser.request.CreateUserDTO;
+import iscm.manageruser.request.ImportJobDTO;
+import iscm.manageruser.request.ImportRowErrorDTO;
+import iscm.manageruser.utils.CsvRowReader;
+import iscm.manageruser.utils.RowReader;
+import iscm.manageruser.utils.TextNormalizer;
+import iscm.manageruser.utils.XlsxRowReader;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Importación de usuarios desde archivos CSV o XLSX en segundo plano.
+ * El archivo se lee fila a fila (nunca entero en memoria) y las filas se agrupan en lotes de tamaño fijo;
+ * cada lote pasa por el alta masiva ({@link UserBulkService}): mismas validaciones que un alta individual,
+ * hash en paralelo en el pool de contraseñas y escritura en su propia transacción. Un lote que falla no
+ * deshace los anteriores: sus filas se informan como rechazadas y la importación continúa.
+ * El estado de cada importación se guarda en memoria en el nodo que recibió el archivo.
+ */
+@Service
+@Slf4j
+public class UserImportServiceImpl implements UserImportService {
+
+    public static final String STATUS_QUEUED = "EN_COLA";
+    public static final String STATUS_RUNNING = "EN_PROCESO";
+    public static final String STATUS_COMPLETED = "COMPLETADO";
+    public static final String STATUS_FAILED = "FALLIDO";
+
+    // Columnas reconocidas en la cabecera (mismos nombres que los campos de CreateUserDTO).
+    private static final List<String> COLUMNS = List.of("username", "password", "email", "primer_nombre", "segundo_nombre",
+            "apellido_paterno", "apellido_materno", "sucursal", "celular", "telefono", "direccion", "ciudad", "cargo", "roles");
+    private static final Set<String> OPTIONAL_COLUMNS = Set.of("segundo_nombre", "apellido_materno");
+    private static final Pattern HEADER_SEPARATOR = Pattern.compile("[\\s-]+");
+    // Ni ',' ni ';': cualquiera de los dos puede ser el separador del CSV.
+    private static final Pattern ROLE_SEPARATOR = Pattern.compile("\\|");
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final UserBulkService userBulkService;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+    private final long retentionMillis;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    private static final class ImportJob {
+        final String id = UUID.randomUUID().toString();
+        final String fileName;
+        final Instant submittedAt = Instant.now();
+        volatile String status = STATUS_QUEUED;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        volatile String error;
+        final LongAdder processed = new LongAdder();
+        final LongAdder created = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        // Acotada a maxReportedErrors: el resto solo se cuenta en 'failed'.
+        final List<ImportRowErrorDTO> rowErrors = new ArrayList<>();
+
+        ImportJob(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    public UserImportServiceImpl(UserBulkService userBulkService,
+                                 @Value("${users.import.chunk-size:200}") int chunkSize,
+                                 @Value("${users.import.max-reported-errors:100}") int maxReportedErrors,
+                                 @Value("${users.import.job-retention:86400000}") long retentionMillis,
+                                 @Value("${users.import.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                 @Value("${users.import.queue-capacity:10}") int queueCapacity,
+                                 @Value("${users.bulk.max-items:1000}") int maxBulkItems) {
+        // Cada lote pasa por el alta masiva, que rechaza con un 400 las listas mayores que su límite: con un lote
+        // mayor todas las filas se rechazarían. Mejor no arrancar.
+        if (chunkSize < 1 || chunkSize > maxBulkItems) {
+            throw new IllegalStateException("users.import.chunk-size (" + chunkSize + ") debe estar entre 1 y users.bulk.max-items ("
+                    + maxBulkItems + ").");
+        }
+        this.userBulkService = userBulkService;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.retentionMillis = retentionMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "user-import-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public ImportJobDTO startImport(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("El archivo está vacío.");
+        }
+        String fileName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename();
+        String extension = fileName.toLowerCase(Locale.ROOT).endsWith(".xlsx") ? ".xlsx"
+                : fileName.toLowerCase(Locale.ROOT).endsWith(".csv") ? ".csv" : null;
+        if (extension == null) {
+            throw new BadRequestException("Formato de archivo no soportado: " + fileName + " (CSV o XLSX).");
+        }
+
+        // El archivo de la petición multipart se borra al terminar la petición: se copia a uno propio.
+        Path copy = Files.createTempFile("importacion-usuarios-", extension);
+        file.transferTo(copy);
+        ImportJob job = new ImportJob(fileName);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, copy, extension.equals(".xlsx")));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(copy);
+            throw new ServiceUnavailableException("Hay demasiadas importaciones en curso. Intente de nuevo más tarde.", 60);
+        }
+        log.info("Importación {} de '{}' en cola ({} bytes).", job.id, fileName, file.getSize());
+        return toDTO(job);
+    }
+
+    @Override
+    public ImportJobDTO getImport(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Importación no encontrada: " + id);
+        }
+        return toDTO(job);
+    }
+
+    /**
+     * Olvida las importaciones terminadas hace más de users.import.job-retention.
+     */
+    @Scheduled(fixedDelayString = "${users.import.purge-interval:3600000}")
+    public void purgeFinished() {
+        Instant limit = Instant.now().minusMillis(retentionMillis);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(limit));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ImportJob job, Path file, boolean xlsx) {
+        job.startedAt = Instant.now();
+        job.status = STATUS_RUNNING;
+        try (RowReader reader = xlsx
+                ? new XlsxRowReader(file.toFile())
+                : new CsvRowReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            List<String> header = reader.next();
+            if (header == null) {
+                throw new BadRequestException("El archivo no tiene cabecera.");
+            }
+            int[] columns = mapColumns(header);
+
+            List<CreateUserDTO> chunk = new ArrayList<>(chunkSize);
+            List<Long> rowNumbers = new ArrayList<>(chunkSize);
+            long rowNumber = 1;
+            List<String> row;
+            while ((row = reader.next()) != null) {
+                rowNumber++;
+                if (row.stream().allMatch(String::isBlank)) {
+                    continue;
+                }
+                if (hasExtraCells(row, header.size())) {
+                    rejectRow(job, rowNumber, cell(row, columns, "username"), "La fila tiene " + row.size()
+                            + " celdas y la cabecera " + header.size() + ". Si un campo contiene el separador del archivo "
+                            + "(por ejemplo, varios roles), entrecomíllelo; los roles se separan con '|'.");
+                    continue;
+                }
+                chunk.add(toCreateUserDTO(row, columns));
+                rowNumbers.add(rowNumber);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(job, chunk, rowNumbers);
+                    chunk.clear();
+                    rowNumbers.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(job, chunk, rowNumbers);
+            }
+            job.status = STATUS_COMPLETED;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            job.error = e.getMessage();
+            job.status = STATUS_FAILED;
+            log.error("Importación {} detenida tras {} filas: {}", job.id, job.processed.sum(), e.getMessage());
+        } finally {
+            job.finishedAt = Instant.now();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el archivo temporal {}: {}", file, e.getMessage());
+            }
+        }
+        log.info("Importación {} terminada ({}): {} filas, {} creadas, {} rechazadas.",
+                job.id, job.status, job.processed.sum(), job.created.sum(), job.failed.sum());
+    }
+
+    // Cada lote en su propia transacción (la del alta masiva). Si el pool de hash está saturado por los logins
+    // se espera lo que indique y se reintenta; cualquier otro fallo rechaza solo las filas de este lote.
+    private void writeChunk(ImportJob job, List<CreateUserDTO> chunk, List<Long> rowNumbers) throws InterruptedException {
+        BulkCreateResultDTO result = null;
+        String chunkError = null;
+        for (int attempt = 1; result == null && chunkError == null; attempt++) {
+            try {
+                result = userBulkService.createUsers(chunk);
+            } catch (ServiceUnavailableException e) {
+                if (attempt == MAX_CHUNK_ATTEMPTS) {
+                    chunkError = e.getMessage();
+                } else {
+                    Thread.sleep(Duration.ofSeconds(e.getRetryAfterSeconds()).toMillis());
+                }
+            } catch (RuntimeException e) {
+                chunkError = e.getMessage();
+            }
+        }
+
+        if (result != null) {
+            for (BulkCreateItemResultDTO item : result.getItems()) {
+                if (!item.isCreated()) {
+                    recordRowError(job, rowNumbers.get(item.getIndex()), item.getUsername(), item.getErrors());
+                }
+            }
+            job.created.add(result.getCreated());
+            job.failed.add(result.getFailed());
+        } else {
+            log.warn("Importación {}: lote de {} filas rechazado: {}", job.id, chunk.size(), chunkError);
+            for (int i = 0; i < chunk.size(); i++) {
+                recordRowError(job, rowNumbers.get(i), chunk.get(i).getUsername(), List.of(chunkError));
+            }
+            job.failed.add(chunk.size());
+        }
+        job.processed.add(chunk.size());
+    }
+
+    // Rechazada antes de llegar a un lote.
+    private void rejectRow(ImportJob job, long row, String username, String error) {
+        recordRowError(job, row, username, List.of(error));
+        job.failed.increment();
+        job.processed.increment();
+    }
+
+    // Celdas con datos más allá de la cabecera: un campo sin comillas que contenía el separador se ha partido
+    // y se perdería lo que quedó fuera. Las celdas vacías del final (separadores sobrantes) no cuentan.
+    private static boolean hasExtraCells(List<String> row, int headerSize) {
+        for (int i = headerSize; i < row.size(); i++) {
+            if (!row.get(i).isBlank()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordRowError(ImportJob job, long row, String username, List<String> errors) {
+        synchronized (job.rowErrors) {
+            if (job.rowErrors.size() < maxReportedErrors) {
+                job.rowErrors.add(new ImportRowErrorDTO(row, username, errors));
+            }
+        }
+    }
+
+    // Posición en el archivo de cada columna de COLUMNS (-1 si no está). Las cabeceras se comparan sin
+    // mayúsculas ni acentos, y "Primer Nombre" o "primer-nombre" equivalen a "primer_nombre".
+    private static int[] mapColumns(List<String> header) {
+        int[] columns = new int[COLUMNS.size()];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.size(); i++) {
+            String name = HEADER_SEPARATOR.matcher(TextNormalizer.fold(header.get(i).strip())).replaceAll("_");
+            int column = COLUMNS.indexOf(name);
+            if (column >= 0 && columns[column] < 0) {
+                columns[column] = i;
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] < 0 && !OPTIONAL_COLUMNS.contains(COLUMNS.get(i))) {
+                missing.add(COLUMNS.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new BadRequestException("Faltan columnas en la cabecera: " + String.join(", ", missing) + ".");
+        }
+        return columns;
+    }
+
+    private static CreateUserDTO toCreateUserDTO(List<String> row, int[] columns) {
+        CreateUserDTO user = new CreateUserDTO();
+        set(row, columns, "username", user, CreateUserDTO::setUsername);
+        set(row, columns, "password", user, CreateUserDTO::setPassword);
+        set(row, columns, "email", user, CreateUserDTO::setEmail);
+        set(row, columns, "primer_nombre", user, CreateUserDTO::setPrimer_nombre);
+        set(row, columns, "segundo_nombre", user, CreateUserDTO::setSegundo_nombre);
+        set(row, columns, "apellido_paterno", user, CreateUserDTO::setApellido_paterno);
+        set(row, columns, "apellido_materno", user, CreateUserDTO::setApellido_materno);
+        set(row, columns, "sucursal", user, CreateUserDTO::setSucursal);
+        set(row, columns, "celular", user, CreateUserDTO::setCelular);
+        set(row, columns, "telefono", user, CreateUserDTO::setTelefono);
+        set(row, columns, "direccion", user, CreateUserDTO::setDireccion);
+        set(row, columns, "ciudad", user, CreateUserDTO::setCiudad);
+        set(row, columns, "cargo", user, CreateUserDTO::setCargo);
+        Set<String> roles = new LinkedHashSet<>();
+        String roleNames = cell(row, columns, "roles");
+        if (roleNames != null) {
+            for (String role : ROLE_SEPARATOR.split(roleNames)) {
+                if (!role.isBlank()) {
+                    roles.add(role.strip());
+                }
+            }
+        }
+        user.setRoles(roles);
+        return user;
+    }
+
+    private static void set(List<String> row, int[] columns, String column, CreateUserDTO user, BiConsumer<CreateUserDTO, String> setter) {
+        setter.accept(user, cell(row, columns, column));
+    }
+
+    // Celda sin espacios alrededor; vacía o ausente es null, para que @NotBlank la rechace.
+    // La contraseña no se recorta: los espacios pueden formar parte de ella.
+    private static String cell(List<String> row, int[] columns, String column) {
+        int index = columns[COLUMNS.indexOf(column)];
+        if (index < 0 || index >= row.size()) {
+            return null;
+        }
+        String value = column.equals("password") ? row.get(index) : row.get(index).strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static ImportJobDTO toDTO(ImportJob job) {
+        long processed = job.processed.sum();
+        double rowsPerSecond = 0.0;
+        if (job.startedAt != null) {
+            Instant end = job.finishedAt != null ? job.finishedAt : Instant.now();
+            long millis = Math.max(1, Duration.between(job.startedAt, end).toMillis());
+            rowsPerSecond = Math.round(processed * 10_000.0 / millis) / 10.0;
+        }
+        List<ImportRowErrorDTO> rowErrors;
+        synchronized (job.rowErrors) {
+            rowErrors = List.copyOf(job.rowErrors);
+        }
+        return new ImportJobDTO(job.id, job.fileName, job.status, processed, job.created.sum(), job.failed.sum(),
+                rowsPerSecond, job.submittedAt, job.startedAt, job.finishedAt, job.error, rowErrors,
+                job.failed.sum() > rowErrors.size());
+    }
+}
@@ -0,0 +1,179 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.request.UserResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché acotada de las respuestas de GET /users/{username}, por nombre de usuario.
+ * Cada entrada guarda la versión (@Version) del usuario con la que se cargó y solo se sirve si coincide
+ * con la versión actual, que el controlador ya consulta para el ETag; así un cambio hecho en otro nodo
+ * nunca se sirve obsoleto. Las escrituras de este nodo además invalidan la entrada, y cada entrada caduca
+ * tras un TTL. Varios fallos simultáneos de la misma clave comparten una única carga.
+ */
+@Component
+@Slf4j
+public class UserResponseCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private record Entry(UserResponseDTO user, long version, long expiresAt) {
+
+        boolean isValid(long expectedVersion, long now) {
+            return version == expectedVersion && expiresAt > now;
+        }
+    }
+
+    public UserResponseCache(@Value("${users.cache.max-size:10000}") int maxSize,
+                             @Value("${users.cache.ttl:300000}") long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Devuelve la respuesta cacheada para esa versión del usuario o la carga una sola vez.
+     * @param version Versión actual del usuario; una entrada de otra versión se descarta.
+     * @param loader  Carga la respuesta desde la BD; sus excepciones (por ejemplo, 404) llegan al llamador.
+     */
+    public UserResponseDTO get(String username, long version, Supplier<UserResponseDTO> loader) {
+        CompletableFuture<Entry> existing = cache.get(username);
+        if (existing != null) {
+            Entry entry = await(existing);
+            if (entry.isValid(version, System.currentTimeMillis())) {
+                hits.increment();
+                return entry.user();
+            }
+            if (cache.remove(username, existing)) {
+                expirations.increment();
+            }
+        }
+        misses.increment();
+
+        CompletableFuture<Entry> loading = new CompletableFuture<>();
+        CompletableFuture<Entry> concurrent = cache.putIfAbsent(username, loading);
+        if (concurrent != null) {
+            // Otro hilo ya la está cargando: se espera a su resultado si es de la misma versión.
+            Entry entry = await(concurrent);
+            return entry.version() == version ? entry.user() : loader.get();
+        }
+
+        ensureCapacity();
+        long start = System.nanoTime();
+        try {
+            Entry entry = new Entry(loader.get(), version, System.currentTimeMillis() + ttlMillis);
+            loading.complete(entry);
+            return entry.user();
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            cache.remove(username, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.increment();
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Descarta la respuesta cacheada del usuario tras modificarlo.
+     */
+    public void invalidate(String username) {
+        if (cache.remove(username) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Descarta todas las respuestas cacheadas, tras una operación masiva sobre usuarios que no se conocen por nombre.
+     */
+    public void invalidateAll() {
+        invalidations.add(cache.size());
+        cache.clear();
+    }
+
+    /**
+     * Elimina periódicamente las entradas caducadas.
+     */
+    @Scheduled(fixedDelayString = "${users.cache.purge-interval:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        cache.entrySet().removeIf(mapEntry -> {
+            CompletableFuture<Entry> future = mapEntry.getValue();
+            boolean expired = future.isDone() && !future.isCompletedExceptionally() && future.join().expiresAt() <= now;
+            if (expired) {
+                expirations.increment();
+            }
+            return expired;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        long l = loads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("loads", l);
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("avgLoadMicros", l == 0 ? 0 : loadNanos.sum() / l / 1_000);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("size", cache.size());
+        stats.put("maxSize", maxSize);
+        return stats;
+    }
+
+    // Si la carga de otro hilo falló, el error (por ejemplo, usuario no encontrado) es también el de este.
+    private static Entry await(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Mantiene la caché acotada: primero descarta los caducados y, si aún está llena, libera un 10%.
+    private void ensureCapacity() {
+        if (cache.size() < maxSize) {
+            return;
+        }
+        purgeExpired();
+        int toEvict = cache.size() - (maxSize - maxSize / 10);
+        Iterator<CompletableFuture<Entry>> iterator = cache.values().iterator();
+        while (toEvict > 0 && iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
+                evictions.increment();
+                toEvict--;
+            }
+        }
+    }
+}
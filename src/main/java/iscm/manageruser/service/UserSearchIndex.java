@@ -0,0 +1,301 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.ServiceUnavailableException;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UserSearchView;
+import iscm.manageruser.request.UserSearchResultDTO;
+import iscm.manageruser.utils.TextNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Índice de búsqueda de usuarios en memoria, para buscar por partes del nombre, usuario, email, cargo,
+ * sucursal o ciudad sin consultar la BD. Los textos se parten en tokens normalizados (sin acentos ni
+ * mayúsculas) guardados en un mapa ordenado, así que un prefijo es un rango del mapa; además cada token
+ * se indexa por sus trigramas para encontrar coincidencias en mitad de una palabra.
+ * Cada término de la consulta debe coincidir con algún token del usuario; la puntuación premia las
+ * coincidencias exactas sobre las de prefijo, y estas sobre las internas.
+ * Se construye al arrancar, se actualiza al crear o modificar usuarios en este nodo (tras el commit) y
+ * se reconstruye periódicamente para incorporar los cambios hechos en otros nodos.
+ */
+@Component
+@Slf4j
+public class UserSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int NGRAM = 3;
+    private static final int EXACT_SCORE = 4;
+    private static final int PREFIX_SCORE = 2;
+    private static final int INFIX_SCORE = 1;
+
+    private final UserRepository userRepository;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    private volatile Snapshot snapshot = new Snapshot();
+    private volatile boolean ready;
+    // Cambios aplicados mientras se construye un índice nuevo, para reaplicarlos sobre él (protegido por this)
+    private List<UserSearchView> changedDuringBuild;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    private record Entry(UserSearchView user, String nombreCompleto, Set<String> tokens) {
+
+        static Entry of(UserSearchView user) {
+            Set<String> tokens = new LinkedHashSet<>();
+            for (String field : new String[]{user.username(), user.email(), user.primerNombre(), user.segundoNombre(),
+                    user.apellidoPaterno(), user.apellidoMaterno(), user.cargo(), user.sucursal(), user.ciudad()}) {
+                tokens.addAll(tokenize(field));
+            }
+            return new Entry(user, buildNombreCompleto(user), tokens);
+        }
+    }
+
+    private static final class Snapshot {
+        final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+        // token -> ids de los usuarios que lo contienen, ordenado para resolver prefijos como rangos
+        final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+        // trigrama -> tokens que lo contienen
+        final ConcurrentHashMap<String, Set<String>> ngrams = new ConcurrentHashMap<>();
+
+        // Solo un escritor a la vez (los llamadores sincronizan); los lectores nunca se bloquean.
+        void put(UserSearchView user) {
+            Entry previous = entries.get(user.id());
+            if (previous != null) {
+                remove(previous);
+            }
+            Entry entry = Entry.of(user);
+            entries.put(user.id(), entry);
+            for (String token : entry.tokens()) {
+                postings.computeIfAbsent(token, this::newToken).add(user.id());
+            }
+        }
+
+        private Set<Long> newToken(String token) {
+            for (int i = 0; i + NGRAM <= token.length(); i++) {
+                ngrams.computeIfAbsent(token.substring(i, i + NGRAM), ngram -> ConcurrentHashMap.newKeySet()).add(token);
+            }
+            return ConcurrentHashMap.newKeySet();
+        }
+
+        private void remove(Entry entry) {
+            for (String token : entry.tokens()) {
+                Set<Long> ids = postings.get(token);
+                if (ids != null && ids.remove(entry.user().id()) && ids.isEmpty()) {
+                    postings.remove(token);
+                    for (int i = 0; i + NGRAM <= token.length(); i++) {
+                        Set<String> tokens = ngrams.get(token.substring(i, i + NGRAM));
+                        if (tokens != null) {
+                            tokens.remove(token);
+                        }
+                    }
+                }
+            }
+        }
+
+        // id -> mejor puntuación del término entre los tokens del usuario
+        Map<Long, Integer> match(String term) {
+            Map<Long, Integer> scores = new HashMap<>();
+            for (Map.Entry<String, Set<Long>> posting : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                int score = posting.getKey().length() == term.length() ? EXACT_SCORE : PREFIX_SCORE;
+                for (Long id : posting.getValue()) {
+                    scores.merge(id, score, Math::max);
+                }
+            }
+            if (term.length() >= NGRAM) {
+                for (String token : candidatesContaining(term)) {
+                    Set<Long> ids = postings.get(token);
+                    if (ids != null && !token.startsWith(term) && token.contains(term)) {
+                        for (Long id : ids) {
+                            scores.merge(id, INFIX_SCORE, Math::max);
+                        }
+                    }
+                }
+            }
+            return scores;
+        }
+
+        // Los tokens del trigrama menos frecuente del término: un superconjunto de los que lo contienen.
+        private Set<String> candidatesContaining(String term) {
+            Set<String> smallest = null;
+            for (int i = 0; i + NGRAM <= term.length(); i++) {
+                Set<String> tokens = ngrams.get(term.substring(i, i + NGRAM));
+                if (tokens == null || tokens.isEmpty()) {
+                    return Set.of();
+                }
+                if (smallest == null || tokens.size() < smallest.size()) {
+                    smallest = tokens;
+                }
+            }
+            return smallest;
+        }
+    }
+
+    public UserSearchIndex(UserRepository userRepository,
+                           @Value("${users.search.default-limit:20}") int defaultLimit,
+                           @Value("${users.search.max-limit:100}") int maxLimit) {
+        this.userRepository = userRepository;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Construye el índice con todos los usuarios al arrancar y lo reconstruye periódicamente.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${users.search.rebuild-interval:600000}",
+            initialDelayString = "${users.search.rebuild-interval:600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            changedDuringBuild = new ArrayList<>();
+        }
+        Snapshot rebuilt = new Snapshot();
+        try (Stream<UserSearchView> users = userRepository.streamSearchViews()) {
+            users.forEach(rebuilt::put);
+            synchronized (this) {
+                changedDuringBuild.forEach(rebuilt::put);
+                snapshot = rebuilt;
+            }
+        } finally {
+            synchronized (this) {
+                changedDuringBuild = null;
+            }
+        }
+        ready = true;
+        log.info("Índice de búsqueda de usuarios construido: {} usuarios, {} tokens, en {} ms.",
+                rebuilt.entries.size(), rebuilt.postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indexa un usuario creado o modificado. Dentro de una transacción se aplica tras el commit,
+     * para no mostrar cambios que acaben revirtiéndose.
+     */
+    public void index(UserEntity user) {
+        UserSearchView view = UserSearchView.of(user);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(view);
+                }
+            });
+        } else {
+            put(view);
+        }
+    }
+
+    /**
+     * Busca usuarios cuyos campos contengan todos los términos de la consulta, mejor puntuados primero.
+     */
+    public List<UserSearchResultDTO> search(String query, Integer limit) {
+        if (!ready) {
+            throw new ServiceUnavailableException("El índice de búsqueda se está construyendo.", 1);
+        }
+        long start = System.nanoTime();
+        int maxResults = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        Snapshot current = snapshot;
+
+        Map<Long, Integer> scores = null;
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Map<Long, Integer> termScores = current.match(term);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        List<UserSearchResultDTO> results = new ArrayList<>();
+        if (scores != null) {
+            Map<Long, Integer> finalScores = scores;
+            scores.keySet().stream()
+                    .map(current.entries::get)
+                    .filter(entry -> entry != null)
+                    .sorted(Comparator.<Entry>comparingInt(entry -> -finalScores.get(entry.user().id()))
+                            .thenComparing(entry -> entry.user().username()))
+                    .limit(maxResults)
+                    .forEach(entry -> results.add(toResult(entry, finalScores.get(entry.user().id()))));
+        }
+        queries.increment();
+        queryNanos.add(System.nanoTime() - start);
+        return results;
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot current = snapshot;
+        long count = queries.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("users", current.entries.size());
+        stats.put("tokens", current.postings.size());
+        stats.put("ngrams", current.ngrams.size());
+        stats.put("queries", count);
+        stats.put("avgQueryMicros", count == 0 ? 0 : queryNanos.sum() / count / 1_000);
+        return stats;
+    }
+
+    private synchronized void put(UserSearchView view) {
+        snapshot.put(view);
+        if (changedDuringBuild != null) {
+            changedDuringBuild.add(view);
+        }
+    }
+
+    private static UserSearchResultDTO toResult(Entry entry, int score) {
+        UserSearchView user = entry.user();
+        return new UserSearchResultDTO(user.id(), user.username(), entry.nombreCompleto(), user.email(),
+                user.cargo(), user.sucursal(), user.ciudad(), score);
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(TextNormalizer.fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String buildNombreCompleto(UserSearchView user) {
+        StringBuilder nombreCompleto = new StringBuilder(user.primerNombre() == null ? "" : user.primerNombre());
+        for (String part : new String[]{user.segundoNombre(), user.apellidoPaterno(), user.apellidoMaterno()}) {
+            if (part != null && !part.isEmpty()) {
+                nombreCompleto.append(' ').append(part);
+            }
+        }
+        return nombreCompleto.toString();
+    }
+}
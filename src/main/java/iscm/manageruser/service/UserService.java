@@ -1,8 +1,14 @@
 package iscm.manageruser.service;
 
+import iscm.manageruser.repositories.projections.UserVersionView;
+import iscm.manageruser.repositories.projections.UsersVersionView;
 import iscm.manageruser.request.CreateUserDTO;
 import iscm.manageruser.request.UpdateAccountDTO;
 import iscm.manageruser.request.UpdatePasswordDTO;
+import iscm.manageruser.request.UserDirectoryStatsDTO;
+import iscm.manageruser.request.UserFilter;
+import iscm.manageruser.request.UserPageDTO;
+import iscm.manageruser.request.UserSearchResultDTO;
 import iscm.manageruser.request.UserResponseDTO;
 
 import java.util.List;
@@ -10,8 +16,12 @@ import java.util.List;
 public interface UserService {
     UserResponseDTO createUser(CreateUserDTO createUserDTO);
     void unlockUser(String username);
-    List<UserResponseDTO> getAllUsers();
-    UserResponseDTO getUserByUsername(String username);
+    UserPageDTO getUsers(UserFilter filter, String sort, String cursor, Integer size);
+    UserResponseDTO getUserByUsername(String username, long version);
+    UserVersionView getUserVersion(String username);
+    UsersVersionView getUsersVersion();
+    UserDirectoryStatsDTO getDirectoryStats(Integer expiringWithinDays);
+    List<UserSearchResultDTO> searchUsers(String query, Integer limit);
     void updatePassword(String username, UpdatePasswordDTO updatePasswordDTO);
     String resetPassword(String username);
     UserResponseDTO updateAccount(String username, UpdateAccountDTO updateAccountDTO);
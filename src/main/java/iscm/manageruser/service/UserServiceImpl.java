@@ -3,42 +3,95 @@ package iscm.manageruser.service;
 import iscm.manageruser.exception.BadRequestException;
 import iscm.manageruser.exception.ResourceNotFoundException;
 import iscm.manageruser.mapper.UserMapper;
-import iscm.manageruser.model.ERole;
 import iscm.manageruser.model.OldPassword;
 import iscm.manageruser.model.RoleEntity;
 import iscm.manageruser.model.UserEntity;
-import iscm.manageruser.repositories.RoleRepository;
+import iscm.manageruser.repositories.OldPasswordRepository;
 import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UserStatsView;
+import iscm.manageruser.repositories.projections.UserVersionView;
+import iscm.manageruser.repositories.projections.UserView;
+import iscm.manageruser.repositories.projections.UsersVersionView;
 import iscm.manageruser.request.CreateUserDTO;
 import iscm.manageruser.request.UpdateAccountDTO;
 import iscm.manageruser.request.UpdatePasswordDTO;
+import iscm.manageruser.request.UserDirectoryStatsDTO;
+import iscm.manageruser.request.UserFilter;
+import iscm.manageruser.request.UserPageDTO;
+import iscm.manageruser.request.UserSearchResultDTO;
 import iscm.manageruser.request.UserResponseDTO;
+import iscm.manageruser.security.BoundedPasswordEncoder;
+import iscm.manageruser.security.KnownUsernameFilter;
+import iscm.manageruser.security.LoginAttemptTracker;
+import iscm.manageruser.security.jwt.TokenRevocationStore;
 import iscm.manageruser.utils.GenerateAlphaNumericString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final RoleRegistry roleRegistry;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final OldPasswordRepository oldPasswordRepository;
     private final UserMapper userMapper;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final KnownUsernameFilter knownUsernameFilter;
+    private final UserSearchIndex userSearchIndex;
+    private final UserResponseCache userResponseCache;
+    private final UserDirectoryStats userDirectoryStats;
+    // Contraseñas anteriores (además de la actual) que no se pueden reutilizar
+    private final int historySize;
+    private final int historyPruneBatchSize;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     // Inyección de dependencias por constructor
-    public UserServiceImpl(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder, UserMapper userMapper) {
+    public UserServiceImpl(UserRepository userRepository, RoleRegistry roleRegistry, BoundedPasswordEncoder passwordEncoder,
+                           OldPasswordRepository oldPasswordRepository,
+                           UserMapper userMapper, TokenRevocationStore tokenRevocationStore,
+                           LoginAttemptTracker loginAttemptTracker, KnownUsernameFilter knownUsernameFilter,
+                           UserSearchIndex userSearchIndex, UserResponseCache userResponseCache,
+                           UserDirectoryStats userDirectoryStats,
+                           @Value("${security.password.history-size:5}") int historySize,
+                           @Value("${security.password.history-prune-batch:500}") int historyPruneBatchSize,
+                           @Value("${users.page.default-size:50}") int defaultPageSize,
+                           @Value("${users.page.max-size:500}") int maxPageSize) {
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
         this.passwordEncoder = passwordEncoder;
+        this.oldPasswordRepository = oldPasswordRepository;
         this.userMapper = userMapper;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.knownUsernameFilter = knownUsernameFilter;
+        this.userSearchIndex = userSearchIndex;
+        this.userResponseCache = userResponseCache;
+        this.userDirectoryStats = userDirectoryStats;
+        this.historySize = historySize;
+        this.historyPruneBatchSize = historyPruneBatchSize;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     @Override
@@ -50,28 +103,15 @@ public class UserServiceImpl implements UserService {
 
         Set<RoleEntity> roles = findAndValidateRoles(createUserDTO.getRoles());
 
-        UserEntity userEntity = UserEntity.builder()
-                .username(createUserDTO.getUsername())
-                .password(passwordEncoder.encode(createUserDTO.getPassword()))
-                .email(createUserDTO.getEmail())
-                .primer_nombre(createUserDTO.getPrimer_nombre())
-                .segundo_nombre(createUserDTO.getSegundo_nombre())
-                .apellido_paterno(createUserDTO.getApellido_paterno())
-                .apellido_materno(createUserDTO.getApellido_materno())
-                .sucursal(createUserDTO.getSucursal())
-                .direccion(createUserDTO.getDireccion())
-                .celular(createUserDTO.getCelular())
-                .telefono(createUserDTO.getTelefono())
-                .ciudad(createUserDTO.getCiudad())
-                .cargo(createUserDTO.getCargo())
-                .fecha_caducidad_password(LocalDate.now().plusDays(90))
-                .intentos_ingreso(0)
-                .bloqueado(false)
-                .roles(roles)
-                .build();
+        UserEntity userEntity = userMapper.toUserEntity(createUserDTO, passwordEncoder.encode(createUserDTO.getPassword()), roles);
 
         try {
             UserEntity savedUser = userRepository.save(userEntity);
+            // Ya puede iniciar sesión: se registra en el filtro de usuarios existentes del login
+            knownUsernameFilter.add(savedUser.getUsername());
+            userSearchIndex.index(savedUser);
+            userResponseCache.invalidate(savedUser.getUsername());
+            userDirectoryStats.update(null, userDirectoryStats.viewOf(savedUser));
             return userMapper.toUserResponseDTO(savedUser);
         } catch (DataIntegrityViolationException e) {
             throw new BadRequestException("Error de datos: es posible que el nombre de usuario o email ya existan.");
@@ -82,60 +122,130 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public void unlockUser(String username) {
         UserEntity user = findUserByUsername(username);
+        UserStatsView before = userDirectoryStats.viewOf(user);
         user.setBloqueado(false);
         user.setIntentos_ingreso(0);
         userRepository.save(user);
+        loginAttemptTracker.reset(username);
+        userResponseCache.invalidate(username);
+        userDirectoryStats.update(before, userDirectoryStats.viewOf(user));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserPageDTO getUsers(UserFilter filter, String sort, String cursor, Integer size) {
+        boolean byUsername = parseSort(sort);
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        String after = decodeCursor(cursor, byUsername);
+
+        // 1) Solo los ids de la página (uno de más para saber si hay siguiente), con filtros y orden en SQL.
+        List<Long> ids = byUsername
+                ? userRepository.findIdsAfterUsername(filter, after, pageSize + 1)
+                : userRepository.findIdsAfterId(filter, after == null ? null : parseIdCursor(after), pageSize + 1);
+        boolean hasMore = ids.size() > pageSize;
+        if (hasMore) {
+            ids = ids.subList(0, pageSize);
+        }
+        if (ids.isEmpty()) {
+            return new UserPageDTO(List.of(), pageSize, false, null);
+        }
+
+        // 2) Las vistas de lectura, con sus roles agregados, solo para esos ids y en el orden del paso 1.
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(ids.get(i), i);
+        }
+        List<UserView> users = new ArrayList<>(userRepository.findViewsByIdIn(ids));
+        users.sort(Comparator.comparing(user -> positions.get(user.id())));
+
+        UserView last = users.get(users.size() - 1);
+        String nextCursor = hasMore ? encodeCursor(byUsername ? last.username() : String.valueOf(last.id()), byUsername) : null;
+        return new UserPageDTO(users.stream().map(userMapper::toUserResponseDTO).collect(Collectors.toList()),
+                pageSize, hasMore, nextCursor);
+    }
+
+    @Override
+    public UserResponseDTO getUserByUsername(String username, long version) {
+        // Sin transacción propia: en un acierto de caché no se toca la BD.
+        return userResponseCache.get(username, version, () -> {
+            UserView user = userRepository.findViewByUsername(username)
+                    .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con username: " + username));
+            return userMapper.toUserResponseDTO(user);
+        });
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<UserResponseDTO> getAllUsers() {
-        // Usar el metodo con JOIN FETCH para evitar N+1
-        return userRepository.findAllWithRoles().stream()
-                .map(userMapper::toUserResponseDTO)
-                .collect(Collectors.toList());
+    public UserVersionView getUserVersion(String username) {
+        return userRepository.findVersionByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con username: " + username));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public UserResponseDTO getUserByUsername(String username) {
-        UserEntity user = findUserByUsernameWithRoles(username);
-        return userMapper.toUserResponseDTO(user);
+    public UsersVersionView getUsersVersion() {
+        return userRepository.findUsersVersion();
+    }
+
+    @Override
+    public UserDirectoryStatsDTO getDirectoryStats(Integer expiringWithinDays) {
+        return userDirectoryStats.snapshot(expiringWithinDays);
+    }
+
+    @Override
+    public List<UserSearchResultDTO> searchUsers(String query, Integer limit) {
+        return userSearchIndex.search(query, limit);
     }
 
     @Override
     @Transactional
     public void updatePassword(String username, UpdatePasswordDTO dto) {
-        UserEntity user = findUserByUsernameWithOldPasswords(username);
+        UserEntity user = findUserByUsername(username);
 
         if (!passwordEncoder.matches(dto.getPasswordActual(), user.getPassword())) {
             throw new BadRequestException("La contraseña actual no es correcta.");
         }
-        if (passwordEncoder.matches(dto.getNewPassword(), user.getPassword())) {
+
+        // La contraseña actual y las últimas del historial se comparan a la vez, en paralelo.
+        List<String> previousHashes = new ArrayList<>(historySize + 1);
+        previousHashes.add(user.getPassword());
+        previousHashes.addAll(oldPasswordRepository.findRecentPasswords(user.getId(), Limit.of(historySize)));
+        int match = passwordEncoder.indexOfMatch(dto.getNewPassword(), previousHashes);
+        if (match == 0) {
             throw new BadRequestException("La nueva contraseña no puede ser igual a la actual.");
         }
-        if (isPasswordInHistory(dto.getNewPassword(), user.getOld_passwords())) {
+        if (match > 0) {
             throw new BadRequestException("La nueva contraseña no puede ser una de las contraseñas utilizadas anteriormente.");
         }
 
         // La validación de complejidad ya se hizo con @ValidPassword en el DTO.
 
+        UserStatsView before = userDirectoryStats.viewOf(user);
         archiveOldPassword(user);
         user.setPassword(passwordEncoder.encode(dto.getNewPassword()));
         user.setFecha_caducidad_password(LocalDate.now().plusDays(90));
         userRepository.save(user);
+
+        // Los tokens emitidos con la contraseña anterior dejan de ser válidos.
+        tokenRevocationStore.revokeAllForUser(username);
+        userResponseCache.invalidate(username);
+        userDirectoryStats.update(before, userDirectoryStats.viewOf(user));
     }
 
     @Override
     @Transactional
     public String resetPassword(String username) {
-        UserEntity user = findUserByUsernameWithOldPasswords(username);
+        UserEntity user = findUserByUsername(username);
         String newPassword = GenerateAlphaNumericString.getRandomString(14);
 
+        UserStatsView before = userDirectoryStats.viewOf(user);
         archiveOldPassword(user);
         user.setPassword(passwordEncoder.encode(newPassword));
         user.setFecha_caducidad_password(LocalDate.now().plusDays(1)); // Forzar cambio al día siguiente
         userRepository.save(user);
+        tokenRevocationStore.revokeAllForUser(username);
+        userResponseCache.invalidate(username);
+        userDirectoryStats.update(before, userDirectoryStats.viewOf(user));
 
         return newPassword; // El controlador decide qué hacer con esto
     }
@@ -145,6 +255,7 @@ public class UserServiceImpl implements UserService {
     public UserResponseDTO updateAccount(String username, UpdateAccountDTO dto) {
         UserEntity user = findUserByUsername(username);
         Set<RoleEntity> roles = findAndValidateRoles(dto.getRoles());
+        UserStatsView before = userDirectoryStats.viewOf(user);
 
         user.setSucursal(dto.getSucursal());
         user.setCiudad(dto.getCiudad());
@@ -155,9 +266,31 @@ public class UserServiceImpl implements UserService {
         user.setRoles(roles);
 
         UserEntity updatedUser = userRepository.save(user);
+        userSearchIndex.index(updatedUser);
+        userResponseCache.invalidate(username);
+        userDirectoryStats.update(before, userDirectoryStats.viewOf(updatedUser));
         return userMapper.toUserResponseDTO(updatedUser);
     }
 
+    /**
+     * Purga por lotes las entradas del historial de contraseñas que han quedado fuera de la ventana
+     * de cada usuario. Cada lote se borra en su propia transacción para no bloquear la tabla.
+     */
+    @Scheduled(cron = "${security.password.history-prune-cron:0 0 4 * * *}")
+    public void prunePasswordHistory() {
+        int total = 0;
+        List<Long> ids;
+        do {
+            ids = oldPasswordRepository.findIdsBeyondHistory(historySize, historyPruneBatchSize);
+            if (!ids.isEmpty()) {
+                total += oldPasswordRepository.deleteByIds(ids);
+            }
+        } while (ids.size() == historyPruneBatchSize);
+        if (total > 0) {
+            log.info("Purgadas {} entradas antiguas del historial de contraseñas.", total);
+        }
+    }
+
     // --- Métodos de ayuda privados ---
 
     private UserEntity findUserByUsername(String username) {
@@ -165,56 +298,58 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con username: " + username));
     }
 
-    private UserEntity findUserByUsernameWithRoles(String username) {
-        return userRepository.findByUsernameWithRoles(username)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con username: " + username));
+    private Set<RoleEntity> findAndValidateRoles(Set<String> roleNames) {
+        // Referencias desde el registro de roles: sin consultas a la tabla 'roles'.
+        return roleRegistry.resolve(roleNames);
     }
 
-    private UserEntity findUserByUsernameWithOldPasswords(String username) {
-        // Asumiendo que has creado este metodo en el repositorio para eficiencia
-        // Si no, la carga LAZY funcionará dentro del metodo transaccional
-        return userRepository.findByUsernameWithOldPasswords(username)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado con username: " + username));
+    private boolean parseSort(String sort) {
+        if (sort == null || sort.equals("id")) {
+            return false;
+        }
+        if (sort.equals("username")) {
+            return true;
+        }
+        throw new BadRequestException("Orden no válido: " + sort + " (id o username).");
     }
 
-    private Set<RoleEntity> findAndValidateRoles(Set<String> roleNames) {
-        return roleNames.stream()
-                // 1. Busca el rol por su nombre.
-                .map(roleName -> roleRepository.findByName(ERole.valueOf(roleName.toUpperCase()))
-                        // 2. Si no lo encuentra, lanza una excepción clara.
-                        .orElseThrow(() -> new BadRequestException("El rol no existe: " + roleName)))
-                // 3. El resultado es un Set de RoleEntity "manejadas" (managed) por JPA.
-                .collect(Collectors.toSet());
+    // El cursor lleva el criterio de orden para que no se pueda usar con otro distinto: "id:42" o "username:jperez".
+    private String encodeCursor(String lastKey, boolean byUsername) {
+        String raw = (byUsername ? "username:" : "id:") + lastKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeCursor(String cursor, boolean byUsername) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String prefix = byUsername ? "username:" : "id:";
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Cursor no válido.");
+        }
+        if (!raw.startsWith(prefix)) {
+            throw new BadRequestException("El cursor no corresponde al orden solicitado.");
+        }
+        return raw.substring(prefix.length());
     }
 
-    private boolean isPasswordInHistory(String newPassword, Set<OldPassword> oldPasswords) {
-        return oldPasswords.stream()
-                .anyMatch(old -> passwordEncoder.matches(newPassword, old.getPassword()));
+    private Long parseIdCursor(String after) {
+        try {
+            return Long.valueOf(after);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Cursor no válido.");
+        }
     }
 
     private void archiveOldPassword(UserEntity user) {
         OldPassword oldPassword = OldPassword.builder()
                 .password(user.getPassword())
+                .user_id(user.getId())
+                .fecha_creacion(Instant.now())
                 .build();
-        user.getOld_passwords().add(oldPassword);
-    }
-    private Set<RoleEntity> findOrCreateRoles(Set<String> roleNames) {
-        Set<RoleEntity> roles = new HashSet<>();
-        for (String roleNameStr : roleNames) {
-            ERole roleName = ERole.valueOf(roleNameStr.toUpperCase());
-
-            // Intenta encontrar el rol en la base de datos
-            RoleEntity role = roleRepository.findByName(roleName)
-                    .orElse(null); // Obtén el rol o null si no existe
-
-            if (role == null) {
-                // El rol no existe, créalo.
-                // Gracias a CascadeType.PERSIST, este nuevo objeto será guardado junto con el usuario.
-                role = RoleEntity.builder().name(roleName).build();
-            }
-
-            roles.add(role);
-        }
-        return roles;
+        oldPasswordRepository.save(oldPassword);
     }
 }
\ No newline at end of file
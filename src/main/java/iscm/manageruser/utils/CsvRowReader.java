@@ -0,0 +1,104 @@
+package iscm.manageruser.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de CSV (RFC 4180) en streaming: campos entre comillas con comillas dobladas y saltos de línea.
+ * El separador se detecta en la primera línea: ';' (lo que exporta Excel con configuración regional en
+ * español) o ','. Se ignora la marca de orden de bytes UTF-8 inicial.
+ */
+public class CsvRowReader implements RowReader {
+
+    private static final int BOM = '\uFEFF';
+    private static final int MAX_HEADER_LENGTH = 64 * 1024;
+
+    private final BufferedReader reader;
+    private char delimiter;
+    private boolean started;
+
+    public CsvRowReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+    }
+
+    @Override
+    public List<String> next() throws IOException {
+        if (!started) {
+            started = true;
+            reader.mark(1);
+            if (reader.read() != BOM) {
+                reader.reset();
+            }
+            reader.mark(MAX_HEADER_LENGTH);
+            String firstLine = reader.readLine();
+            reader.reset();
+            delimiter = firstLine != null && count(firstLine, ';') > count(firstLine, ',') ? ';' : ',';
+        }
+
+        int c = reader.read();
+        // Líneas en blanco entre filas: no son filas.
+        while (c == '\r' || c == '\n') {
+            c = reader.read();
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("CSV mal formado: comillas sin cerrar.");
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == delimiter) {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                row.add(field.toString());
+                return row;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static int count(String line, char character) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == character) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,16 @@
+package iscm.manageruser.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Lector de una hoja de cálculo fila a fila, sin cargar el archivo completo en memoria.
+ */
+public interface RowReader extends Closeable {
+
+    /**
+     * Siguiente fila, con las celdas vacías como cadenas vacías, o null al final del archivo.
+     */
+    List<String> next() throws IOException;
+}
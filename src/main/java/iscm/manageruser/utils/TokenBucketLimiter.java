@@ -0,0 +1,95 @@
+package iscm.manageruser.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limitador de tasa por clave con semántica de token bucket (capacidad 'burst', recarga 'ratePerMinute').
+ * Se implementa como GCRA: cada clave guarda un único long (el instante teórico en que su cubo vuelve a
+ * estar lleno) que se actualiza con compareAndSet, sin bloqueos. Una entrada cuyo instante ya pasó equivale
+ * a un cubo lleno, así que se puede descartar sin perder información: eso permite expulsar las claves
+ * inactivas. El número de claves está acotado; las que llegan con el mapa lleno comparten un cubo común.
+ */
+public class TokenBucketLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflowBucket;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    /**
+     * @param burst         Peticiones permitidas de golpe con el cubo lleno.
+     * @param ratePerMinute Peticiones que se recargan por minuto.
+     * @param maxKeys       Máximo de claves con cubo propio.
+     */
+    public TokenBucketLimiter(int burst, int ratePerMinute, int maxKeys) {
+        this.emissionIntervalNanos = 60_000_000_000L / Math.max(1, ratePerMinute);
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(1, burst);
+        this.maxKeys = maxKeys;
+        this.overflowBucket = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Consume un token de la clave.
+     * @return 0 si se permite la petición, o los nanosegundos que faltan para que haya un token disponible.
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                overflowed.increment();
+                bucket = overflowBucket;
+            } else {
+                bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+        }
+
+        while (true) {
+            long theoreticalArrival = bucket.get();
+            long next = (theoreticalArrival - now > 0 ? theoreticalArrival : now) + emissionIntervalNanos;
+            long excess = next - now - burstToleranceNanos;
+            if (excess > 0) {
+                rejected.increment();
+                return excess;
+            }
+            if (bucket.compareAndSet(theoreticalArrival, next)) {
+                allowed.increment();
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * Descarta las claves cuyo cubo ya está lleno de nuevo (equivalen a una clave nueva).
+     * @return el número de claves descartadas.
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return before - buckets.size();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long allowedCount() {
+        return allowed.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public long overflowCount() {
+        return overflowed.sum();
+    }
+}
@@ -0,0 +1,238 @@
+package iscm.manageruser.utils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Lector en streaming de la primera hoja de un libro XLSX, sin dependencias externas: el XLSX es un ZIP
+ * de XML, y la hoja se recorre con StAX fila a fila directamente desde el ZIP.
+ * Solo la tabla de textos compartidos (sharedStrings.xml) se carga completa, porque las celdas la
+ * referencian por posición; es lo mismo que hacen los lectores en streaming de Apache POI.
+ */
+public class XlsxRowReader implements RowReader {
+
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String DEFAULT_SHEET = "xl/worksheets/sheet1.xml";
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        // El archivo lo sube un usuario: sin DTD ni entidades externas (XXE).
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final ZipFile zipFile;
+    private final List<String> sharedStrings;
+    private final InputStream sheetStream;
+    private final XMLStreamReader sheet;
+
+    public XlsxRowReader(File file) throws IOException {
+        zipFile = new ZipFile(file);
+        try {
+            sharedStrings = readSharedStrings();
+            ZipEntry sheetEntry = zipFile.getEntry(firstSheetPath());
+            if (sheetEntry == null) {
+                throw new IOException("El archivo XLSX no contiene ninguna hoja.");
+            }
+            sheetStream = zipFile.getInputStream(sheetEntry);
+            sheet = XML_INPUT_FACTORY.createXMLStreamReader(sheetStream);
+        } catch (XMLStreamException e) {
+            zipFile.close();
+            throw new IOException("XLSX mal formado: " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            zipFile.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> next() throws IOException {
+        try {
+            while (sheet.hasNext()) {
+                if (sheet.next() == START_ELEMENT && "row".equals(sheet.getLocalName())) {
+                    return readRow();
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("XLSX mal formado: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sheet.close();
+        } catch (XMLStreamException e) {
+            // Se cierra igualmente el ZIP
+        } finally {
+            sheetStream.close();
+            zipFile.close();
+        }
+    }
+
+    // Las celdas vacías no aparecen en el XML: su posición se toma de la referencia ("C7" -> columna 2).
+    private List<String> readRow() throws XMLStreamException {
+        List<String> row = new ArrayList<>();
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == START_ELEMENT && "c".equals(sheet.getLocalName())) {
+                String reference = sheet.getAttributeValue(null, "r");
+                String type = sheet.getAttributeValue(null, "t");
+                int column = reference == null ? row.size() : columnIndex(reference);
+                String value = readCell(type);
+                while (row.size() < column) {
+                    row.add("");
+                }
+                row.add(value);
+            } else if (event == END_ELEMENT && "row".equals(sheet.getLocalName())) {
+                break;
+            }
+        }
+        return row;
+    }
+
+    private String readCell(String type) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        boolean inValue = false;
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == START_ELEMENT && ("v".equals(sheet.getLocalName()) || "t".equals(sheet.getLocalName()))) {
+                inValue = true;
+            } else if ((event == CHARACTERS || event == CDATA) && inValue) {
+                text.append(sheet.getText());
+            } else if (event == END_ELEMENT) {
+                if ("c".equals(sheet.getLocalName())) {
+                    break;
+                }
+                inValue = false;
+            }
+        }
+        String raw = text.toString();
+        if (type == null || type.equals("n")) {
+            return number(raw);
+        }
+        return switch (type) {
+            case "s" -> sharedString(raw);
+            case "b" -> "1".equals(raw) ? "TRUE" : "FALSE";
+            default -> raw; // inlineStr, str (resultado de fórmula), e (error)
+        };
+    }
+
+    // Los números se guardan como texto decimal ("71012345", "7.1012345E7"): se devuelven sin exponente ni ".0".
+    private static String number(String raw) {
+        if (raw.isEmpty()) {
+            return raw;
+        }
+        try {
+            return new BigDecimal(raw).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return raw;
+        }
+    }
+
+    private String sharedString(String raw) throws XMLStreamException {
+        try {
+            return sharedStrings.get(Integer.parseInt(raw.trim()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new XMLStreamException("Referencia a texto compartido no válida: " + raw);
+        }
+    }
+
+    private static int columnIndex(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+            column = column * 26 + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    // Cada <si> es un texto; si tiene formato mixto viene partido en varios <r><t>, que se concatenan.
+    // Las guías fonéticas (<rPh>) no forman parte del texto.
+    private List<String> readSharedStrings() throws IOException, XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        ZipEntry entry = zipFile.getEntry("xl/sharedStrings.xml");
+        if (entry == null) {
+            return strings;
+        }
+        try (InputStream input = zipFile.getInputStream(entry)) {
+            XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(input);
+            StringBuilder current = null;
+            boolean inText = false;
+            int phoneticDepth = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "si" -> current = new StringBuilder();
+                        case "rPh" -> phoneticDepth++;
+                        case "t" -> inText = phoneticDepth == 0;
+                        default -> { }
+                    }
+                } else if ((event == CHARACTERS || event == CDATA) && inText && current != null) {
+                    current.append(xml.getText());
+                } else if (event == END_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "si" -> {
+                            strings.add(current == null ? "" : current.toString());
+                            current = null;
+                        }
+                        case "rPh" -> phoneticDepth--;
+                        case "t" -> inText = false;
+                        default -> { }
+                    }
+                }
+            }
+            xml.close();
+        }
+        return strings;
+    }
+
+    // La primera hoja del libro (workbook.xml) y su archivo, resuelto con las relaciones del libro.
+    private String firstSheetPath() throws IOException, XMLStreamException {
+        String relationshipId = null;
+        ZipEntry workbook = zipFile.getEntry("xl/workbook.xml");
+        if (workbook != null) {
+            try (InputStream input = zipFile.getInputStream(workbook)) {
+                XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(input);
+                while (xml.hasNext() && relationshipId == null) {
+                    if (xml.next() == START_ELEMENT && "sheet".equals(xml.getLocalName())) {
+                        relationshipId = xml.getAttributeValue(RELATIONSHIPS_NS, "id");
+                    }
+                }
+                xml.close();
+            }
+        }
+        ZipEntry relationships = zipFile.getEntry("xl/_rels/workbook.xml.rels");
+        if (relationshipId == null || relationships == null) {
+            return DEFAULT_SHEET;
+        }
+        try (InputStream input = zipFile.getInputStream(relationships)) {
+            XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(input);
+            while (xml.hasNext()) {
+                if (xml.next() == START_ELEMENT && "Relationship".equals(xml.getLocalName())
+                        && relationshipId.equals(xml.getAttributeValue(null, "Id"))) {
+                    String target = xml.getAttributeValue(null, "Target");
+                    xml.close();
+                    return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+                }
+            }
+            xml.close();
+        }
+        return DEFAULT_SHEET;
+    }
+}
@@ -0,0 +1,60 @@
+package iscm.manageruser.controller;
+
+import iscm.manageruser.request.UserResponseDTO;
+import iscm.manageruser.service.UserBulkService;
+import iscm.manageruser.service.UserExportService;
+import iscm.manageruser.service.UserImportService;
+import iscm.manageruser.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ManageControllerTest {
+
+    private UserService userService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ManageController(userService, mock(UserExportService.class),
+                mock(UserBulkService.class), mock(UserImportService.class))).build();
+    }
+
+    // El alta individual aplica la misma política de contraseñas que el alta masiva y la importación.
+    @Test
+    void singleCreationRejectsWeakPasswords() throws Exception {
+        mockMvc.perform(post("/api/v1/users").contentType(MediaType.APPLICATION_JSON).content(user("secreto")))
+                .andExpect(status().isBadRequest());
+        verify(userService, never()).createUser(any());
+    }
+
+    @Test
+    void singleCreationAcceptsStrongPasswords() throws Exception {
+        when(userService.createUser(any())).thenReturn(new UserResponseDTO(7L, "jperez", "jperez@iscm.com", "Juan Perez",
+                "Central", "2245123", "Calle 1", "71012345", "La Paz", "Cajero", false, null, Set.of("ASISTENTE")));
+
+        mockMvc.perform(post("/api/v1/users").contentType(MediaType.APPLICATION_JSON).content(user("Password.Seguro.1!")))
+                .andExpect(status().isCreated());
+    }
+
+    private static String user(String password) {
+        return """
+                {"username": "jperez", "password": "%s", "email": "jperez@iscm.com", "primer_nombre": "Juan",
+                 "apellido_paterno": "Perez", "sucursal": "Central", "celular": "71012345", "telefono": "2245123",
+                 "direccion": "Calle 1", "ciudad": "La Paz", "cargo": "Cajero", "roles": ["ASISTENTE"]}
+                """.formatted(password);
+    }
+}
@@ -0,0 +1,60 @@
+package iscm.manageruser.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundedPasswordEncoderTest {
+
+    // Un hilo y un hueco en la cola: encolar todo el historial de golpe se rechazaría con un 503.
+    private final PasswordHashingExecutor hashingExecutor = new PasswordHashingExecutor(1, 1);
+    private final AtomicInteger comparisons = new AtomicInteger();
+
+    private final PasswordEncoder delegate = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "{test}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            comparisons.incrementAndGet();
+            if (encodedPassword.equals("{roto}")) {
+                throw new IllegalArgumentException("Hash mal formado");
+            }
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    };
+    private final BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, hashingExecutor);
+
+    @AfterEach
+    void tearDown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    void comparesAHistoryLargerThanTheQueueAndStopsAtTheFirstMatch() {
+        List<String> history = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            history.add("{test}anterior" + i);
+        }
+
+        assertEquals(-1, encoder.indexOfMatch("nueva", history));
+        assertEquals(10, comparisons.getAndSet(0));
+        assertEquals(3, encoder.indexOfMatch("anterior3", history));
+        assertEquals(4, comparisons.get());
+    }
+
+    @Test
+    void delegateFailuresArriveUnwrapped() {
+        assertThrows(IllegalArgumentException.class,
+                () -> encoder.indexOfMatch("nueva", List.of("{test}anterior0", "{roto}", "{test}anterior2")));
+    }
+}
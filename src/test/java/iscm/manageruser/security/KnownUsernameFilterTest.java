@@ -0,0 +1,66 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UsernameView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KnownUsernameFilterTest {
+
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.streamUsernamesAfter(anyLong())).thenAnswer(invocation -> Stream.of(view("admin")));
+    }
+
+    @Test
+    void userCreatedOnAnotherNodeIsFoundBeforeTheScheduledSync() {
+        KnownUsernameFilter filter = filter(0);
+        filter.build();
+        // Alta confirmada en otro nodo después de construir el filtro
+        when(userRepository.streamUsernamesModifiedSince(any(Instant.class)))
+                .thenAnswer(invocation -> Stream.of(view("nuevo")));
+
+        assertTrue(filter.mightExist("Nuevo"));
+        assertEquals(1L, filter.stats().get("recheckedLookups"));
+    }
+
+    @Test
+    void unknownUsernamesSynchronizeAtMostOncePerRecheckInterval() {
+        KnownUsernameFilter filter = filter(60_000);
+        filter.build();
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(filter.mightExist("intruso" + i));
+        }
+        assertEquals(100L, filter.stats().get("skippedLookups"));
+        // La construcción cuenta como sincronización reciente: ningún intento provoca otra consulta
+        verify(userRepository, times(0)).streamUsernamesModifiedSince(any(Instant.class));
+    }
+
+    private KnownUsernameFilter filter(long recheckIntervalMillis) {
+        return new KnownUsernameFilter(userRepository, mock(PlatformTransactionManager.class), 1_000, 0.01, recheckIntervalMillis);
+    }
+
+    private static UsernameView view(String username) {
+        UsernameView view = mock(UsernameView.class);
+        when(view.getUsername()).thenReturn(username);
+        return view;
+    }
+}
@@ -0,0 +1,82 @@
+package iscm.manageruser.security;
+
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.security.jwt.TokenRevocationStore;
+import iscm.manageruser.service.UserDirectoryStats;
+import iscm.manageruser.service.UserResponseCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class LoginAttemptTrackerTest {
+
+    @Test
+    void concurrentFailuresLockTheAccountExactlyOnce() throws Exception {
+        UserRepository userRepository = mock(UserRepository.class);
+        TokenRevocationStore tokenRevocationStore = mock(TokenRevocationStore.class);
+        LoginAttemptTracker tracker = new LoginAttemptTracker(userRepository, tokenRevocationStore, mock(UserResponseCache.class), mock(UserDirectoryStats.class), 3, 900_000L);
+        tracker.seed(user(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                tracker.recordFailure("jperez");
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        tracker.flush();
+
+        // Los tres fallos llegan a la BD en el mismo UPDATE que bloquea la cuenta; el resto se ignora.
+        verify(userRepository, times(1)).lockAfterFailedAttempts(7L, 3);
+        verify(userRepository, never()).incrementLoginAttempts(anyLong(), anyInt());
+        verify(tokenRevocationStore, times(1)).revokeAllForUser("jperez");
+        assertEquals(3L, tracker.stats().get("failures"));
+        assertFalse(tracker.recordSuccess(user(0), null));
+    }
+
+    @Test
+    void failuresBelowTheLimitAreCoalescedIntoOneUpdate() {
+        UserRepository userRepository = mock(UserRepository.class);
+        LoginAttemptTracker tracker = new LoginAttemptTracker(userRepository, mock(TokenRevocationStore.class), mock(UserResponseCache.class), mock(UserDirectoryStats.class), 3, 900_000L);
+        tracker.seed(user(0));
+
+        tracker.recordFailure("jperez");
+        tracker.recordFailure("jperez");
+        tracker.flush();
+        tracker.flush();
+
+        verify(userRepository, times(1)).incrementLoginAttempts(7L, 2);
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    private static UserEntity user(int intentosIngreso) {
+        return UserEntity.builder()
+                .id(7L)
+                .username("jperez")
+                .intentos_ingreso(intentosIngreso)
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package iscm.manageruser.security.filters;
+
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.model.RoleEntity;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.security.KnownUsernameFilter;
+import iscm.manageruser.security.LoginAttemptTracker;
+import iscm.manageruser.security.LoginRateLimiter;
+import iscm.manageruser.security.jwt.JwtUtils;
+import iscm.manageruser.security.jwt.TokenRevocationStore;
+import iscm.manageruser.service.RefreshTokenService;
+import iscm.manageruser.service.UserDetailServiceImpl;
+import iscm.manageruser.service.UserDirectoryStats;
+import iscm.manageruser.service.UserResponseCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifica el número de accesos a la base de datos de un login correcto. No hay una base de datos
+ * embebida en el proyecto, así que las consultas se cuentan como llamadas al repositorio.
+ */
+class JwtAuthenticationFilterTest {
+
+    private static final BCryptPasswordEncoder LEGACY_ENCODER = new BCryptPasswordEncoder(4);
+    private static final DelegatingPasswordEncoder PASSWORD_ENCODER =
+            new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", LEGACY_ENCODER));
+
+    static {
+        PASSWORD_ENCODER.setDefaultPasswordEncoderForMatches(LEGACY_ENCODER);
+    }
+
+    private UserRepository userRepository;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        JwtUtils jwtUtils = mock(JwtUtils.class);
+        RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+        when(jwtUtils.generateAccessToken(anyString(), anyCollection(), anyMap())).thenReturn("access-token");
+        when(refreshTokenService.createRefreshToken(any())).thenReturn("refresh-token");
+
+        LoginAttemptTracker loginAttemptTracker =
+                new LoginAttemptTracker(userRepository, mock(TokenRevocationStore.class), mock(UserResponseCache.class), mock(UserDirectoryStats.class), 3, 900_000L);
+
+        UserDetailServiceImpl userDetailService = new UserDetailServiceImpl(userRepository, loginAttemptTracker,
+                new KnownUsernameFilter(userRepository, mock(PlatformTransactionManager.class), 1_000, 0.01, 1_000));
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(PASSWORD_ENCODER);
+        provider.setUserDetailsService(userDetailService);
+        provider.setUserDetailsPasswordService(userDetailService);
+
+        filter = new JwtAuthenticationFilter(jwtUtils, refreshTokenService, loginAttemptTracker,
+                new LoginRateLimiter(20, 30, 5, 6, 1_000));
+        filter.setAuthenticationManager(new ProviderManager(provider));
+        filter.setFilterProcessesUrl("/api/v1/login");
+    }
+
+    @Test
+    void successfulLoginIssuesASingleSelect() throws Exception {
+        when(userRepository.findByUsernameWithRoles("jperez")).thenReturn(Optional.of(user(0)));
+
+        MockHttpServletResponse response = login("jperez", "Secreta#2024");
+
+        assertEquals(200, response.getStatus());
+        verify(userRepository).findByUsernameWithRoles("jperez");
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void successfulLoginResetsPendingAttemptsWithConditionalUpdate() throws Exception {
+        when(userRepository.findByUsernameWithRoles("jperez")).thenReturn(Optional.of(user(2)));
+
+        MockHttpServletResponse response = login("jperez", "Secreta#2024");
+
+        assertEquals(200, response.getStatus());
+        verify(userRepository).findByUsernameWithRoles("jperez");
+        verify(userRepository).resetLoginAttempts(7L);
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void legacyHashIsUpgradedInTheSameUpdateAsTheAttemptReset() throws Exception {
+        UserEntity legacyUser = user(1);
+        legacyUser.setPassword(LEGACY_ENCODER.encode("Secreta#2024"));
+        when(userRepository.findByUsernameWithRoles("jperez")).thenReturn(Optional.of(legacyUser));
+
+        MockHttpServletResponse response = login("jperez", "Secreta#2024");
+
+        assertEquals(200, response.getStatus());
+        ArgumentCaptor<String> upgradedHash = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).findByUsernameWithRoles("jperez");
+        verify(userRepository).resetLoginAttemptsAndUpdatePassword(eq(7L), upgradedHash.capture());
+        verifyNoMoreInteractions(userRepository);
+        assertTrue(upgradedHash.getValue().startsWith("{bcrypt}"));
+        assertTrue(PASSWORD_ENCODER.matches("Secreta#2024", upgradedHash.getValue()));
+    }
+
+    private MockHttpServletResponse login(String username, String password) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/login");
+        request.setServletPath("/api/v1/login");
+        request.setContentType("application/json");
+        request.setContent(("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}").getBytes());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static UserEntity user(int intentosIngreso) {
+        return UserEntity.builder()
+                .id(7L)
+                .username("jperez")
+                .password(PASSWORD_ENCODER.encode("Secreta#2024"))
+                .cargo("Analista")
+                .ciudad("La Paz")
+                .fecha_caducidad_password(LocalDate.now().plusDays(30))
+                .intentos_ingreso(intentosIngreso)
+                .roles(Set.of(RoleEntity.builder().id(1L).name(ERole.ANALISTA).build()))
+                .build();
+    }
+}
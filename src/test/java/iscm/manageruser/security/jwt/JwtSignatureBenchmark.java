@@ -0,0 +1,70 @@
+package iscm.manageruser.security.jwt;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark manual que compara el rendimiento de firma y verificación de JwtUtils por algoritmo.
+ * No es un test (surefire no lo ejecuta): se lanza a mano con el classpath de test, por ejemplo
+ * {@code java -cp target/classes:target/test-classes:<dependencias> iscm.manageruser.security.jwt.JwtSignatureBenchmark 10000}
+ */
+public class JwtSignatureBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : ITERATIONS;
+
+        System.out.printf("%-8s %14s %14s%n", "alg", "sign ops/s", "verify ops/s");
+        for (JwtAlgorithm algorithm : JwtAlgorithm.values()) {
+            JwtUtils jwtUtils = new JwtUtils(keyRing(algorithm), 900_000L);
+            List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+            Map<String, Object> claims = Map.of("cargo", "Administrador de Sistemas", "ciudad", "La Paz");
+
+            String token = null;
+            for (int i = 0; i < WARMUP; i++) {
+                token = jwtUtils.generateAccessToken("admin", authorities, claims);
+                jwtUtils.parseClaims(token);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                token = jwtUtils.generateAccessToken("admin", authorities, claims);
+            }
+            double signPerSecond = iterations / ((System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                jwtUtils.parseClaims(token);
+            }
+            double verifyPerSecond = iterations / ((System.nanoTime() - start) / 1e9);
+
+            System.out.printf("%-8s %14.0f %14.0f%n", algorithm.jwsName(), signPerSecond, verifyPerSecond);
+        }
+    }
+
+    private static JwtKeyRing keyRing(JwtAlgorithm algorithm) throws Exception {
+        KeyPairGenerator generator = switch (algorithm) {
+            case RS256 -> {
+                KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+                rsa.initialize(2048);
+                yield rsa;
+            }
+            case ES256 -> {
+                KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+                ec.initialize(new ECGenParameterSpec("secp256r1"));
+                yield ec;
+            }
+            case EdDSA -> KeyPairGenerator.getInstance("Ed25519");
+        };
+        KeyPair keyPair = generator.generateKeyPair();
+        JwtKey key = new JwtKey("bench-" + algorithm.jwsName(), algorithm, keyPair.getPrivate(), keyPair.getPublic());
+        return new JwtKeyRing(key, List.of());
+    }
+}
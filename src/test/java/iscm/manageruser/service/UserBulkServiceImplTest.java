@@ -0,0 +1,208 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.BadRequestException;
+import iscm.manageruser.mapper.UserMapper;
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UserKeyView;
+import iscm.manageruser.request.BulkCreateItemResultDTO;
+import iscm.manageruser.request.BulkCreateResultDTO;
+import iscm.manageruser.request.BulkRoleChangeDTO;
+import iscm.manageruser.request.BulkUpdateResultDTO;
+import iscm.manageruser.request.CreateUserDTO;
+import iscm.manageruser.request.UserFilter;
+import iscm.manageruser.request.UserSelectionDTO;
+import iscm.manageruser.security.BoundedPasswordEncoder;
+import iscm.manageruser.security.KnownUsernameFilter;
+import iscm.manageruser.security.LoginAttemptTracker;
+import iscm.manageruser.security.PasswordHashingExecutor;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserBulkServiceImplTest {
+
+    private PasswordHashingExecutor hashingExecutor;
+    private UserRepository userRepository;
+    private KnownUsernameFilter knownUsernameFilter;
+    private UserResponseCache userResponseCache;
+    private UserDirectoryStats userDirectoryStats;
+    private LoginAttemptTracker loginAttemptTracker;
+    private UserBulkServiceImpl bulkService;
+
+    @BeforeEach
+    void setUp() {
+        hashingExecutor = new PasswordHashingExecutor(2, 4);
+        userRepository = mock(UserRepository.class);
+        knownUsernameFilter = mock(KnownUsernameFilter.class);
+        userResponseCache = mock(UserResponseCache.class);
+        userDirectoryStats = mock(UserDirectoryStats.class);
+        loginAttemptTracker = mock(LoginAttemptTracker.class);
+        RoleRegistry roleRegistry = mock(RoleRegistry.class);
+        when(roleRegistry.parse(anyCollection())).thenReturn(Set.of(ERole.ASISTENTE));
+        when(roleRegistry.parse(List.of("JEFE"))).thenReturn(Set.of(ERole.JEFE));
+        when(roleRegistry.nameOf(any())).thenReturn(ERole.ASISTENTE);
+        when(userRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // "Hash" reversible y trivial: solo importa que se calcule en el pool y en el orden correcto.
+        PasswordEncoder delegate = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return "{test}" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals(encode(rawPassword));
+            }
+        };
+        bulkService = new UserBulkServiceImpl(userRepository, roleRegistry, new BoundedPasswordEncoder(delegate, hashingExecutor),
+                new UserMapper(roleRegistry), Validation.buildDefaultValidatorFactory().getValidator(),
+                mock(PlatformTransactionManager.class), knownUsernameFilter, mock(UserSearchIndex.class),
+                userResponseCache, userDirectoryStats, loginAttemptTracker, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    void createsValidItemsAndReportsTheRestPerItem() {
+        List<CreateUserDTO> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(user("usuario" + i, "usuario" + i + "@iscm.com"));
+        }
+        users.get(1).setEmail("no-es-un-email");
+        users.get(3).setUsername("USUARIO2");
+        users.get(4).setUsername("existente");
+        when(userRepository.findKeysByUsernameInOrEmailIn(anyCollection(), anyCollection()))
+                .thenReturn(List.of(new UserKeyView("Existente", "otro@iscm.com")));
+
+        BulkCreateResultDTO result = bulkService.createUsers(users);
+
+        assertEquals(6, result.getTotal());
+        assertEquals(3, result.getCreated());
+        assertEquals(3, result.getFailed());
+        List<BulkCreateItemResultDTO> items = result.getItems();
+        assertTrue(items.get(0).isCreated());
+        assertEquals("usuario0", items.get(0).getUser().getUsername());
+        assertEquals("{test}Password.Seguro.0!", savedUsers().get(0).getPassword());
+        assertFalse(items.get(1).isCreated());
+        assertTrue(items.get(1).getErrors().get(0).startsWith("email"));
+        assertEquals(List.of("El nombre de usuario está repetido en el elemento 2."), items.get(3).getErrors());
+        assertEquals(List.of("El nombre de usuario ya está registrado."), items.get(4).getErrors());
+        assertTrue(items.get(5).isCreated());
+        verify(knownUsernameFilter, times(3)).add(any());
+    }
+
+    @Test
+    void rejectsBulkUpdatesWithoutUsersOrFilter() {
+        UserSelectionDTO selection = new UserSelectionDTO();
+        selection.setSucursal(" ");
+
+        assertThrows(BadRequestException.class, () -> bulkService.unlockUsers(selection));
+        selection.setUsernames(List.of(" "));
+        assertThrows(BadRequestException.class, () -> bulkService.expirePasswords(selection));
+        verify(userRepository, never()).unlockUsers(any(), any(), any());
+        verify(userRepository, never()).expirePasswords(any(), any(), any(), any());
+    }
+
+    @Test
+    void unlocksListedUsersAndForgetsTheirInMemoryState() {
+        UserSelectionDTO selection = new UserSelectionDTO();
+        selection.setUsernames(List.of("jperez", " mpena", "jperez"));
+        when(userRepository.unlockUsers(eq(List.of("jperez", "mpena")), any(), any())).thenReturn(1);
+
+        BulkUpdateResultDTO result = bulkService.unlockUsers(selection);
+
+        assertEquals(1, result.getUsersUpdated());
+        verify(loginAttemptTracker).reset("mpena");
+        verify(userResponseCache).invalidate("jperez");
+        verify(userResponseCache, never()).invalidateAll();
+        verify(userDirectoryStats).reconcile();
+    }
+
+    @Test
+    void changesRolesByFilterAddingBeforeRemoving() {
+        BulkRoleChangeDTO change = new BulkRoleChangeDTO();
+        change.setSucursal("Central");
+        change.setRole("asistente");
+        change.setAddRoles(List.of("JEFE"));
+        change.setRemoveRoles(List.of("ASISTENTE"));
+        ArgumentCaptor<UserFilter> filter = ArgumentCaptor.forClass(UserFilter.class);
+        when(userRepository.touchUsersForRoleChange(isNull(), filter.capture(), eq(Set.of(ERole.JEFE)), eq(Set.of(ERole.ASISTENTE)), any()))
+                .thenReturn(3);
+        when(userRepository.addRoles(isNull(), any(), eq(Set.of(ERole.JEFE)))).thenReturn(3);
+        when(userRepository.removeRoles(isNull(), any(), eq(Set.of(ERole.ASISTENTE)))).thenReturn(3);
+
+        BulkUpdateResultDTO result = bulkService.changeRoles(change);
+
+        assertEquals(3, result.getUsersUpdated());
+        assertEquals(3, result.getRolesAdded());
+        assertEquals(3, result.getRolesRemoved());
+        assertEquals("Central", filter.getValue().getSucursal());
+        assertNull(filter.getValue().getCiudad());
+        assertEquals(ERole.ASISTENTE, filter.getValue().getRole());
+        // El filtro es uno de los roles que se quitan: quitarlo antes dejaría sin usuarios las demás sentencias.
+        InOrder order = inOrder(userRepository);
+        order.verify(userRepository).touchUsersForRoleChange(any(), any(), any(), any(), any());
+        order.verify(userRepository).addRoles(any(), any(), any());
+        order.verify(userRepository).removeRoles(any(), any(), any());
+        verify(userResponseCache).invalidateAll();
+        verify(userDirectoryStats).reconcile();
+
+        change.setAddRoles(List.of("ASISTENTE"));
+        assertThrows(BadRequestException.class, () -> bulkService.changeRoles(change));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UserEntity> savedUsers() {
+        ArgumentCaptor<List<UserEntity>> saved = ArgumentCaptor.forClass(List.class);
+        verify(userRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private static CreateUserDTO user(String username, String email) {
+        CreateUserDTO user = new CreateUserDTO();
+        user.setUsername(username);
+        user.setPassword("Password.Seguro." + username.substring(username.length() - 1) + "!");
+        user.setEmail(email);
+        user.setPrimer_nombre("Juan");
+        user.setApellido_paterno("Perez");
+        user.setSucursal("Central");
+        user.setCelular("710 12345");
+        user.setTelefono("2 2451234");
+        user.setDireccion("Calle 123");
+        user.setCiudad("La Paz");
+        user.setCargo("Cajero");
+        user.setRoles(Set.of("ASISTENTE"));
+        return user;
+    }
+}
@@ -0,0 +1,105 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.ServiceUnavailableException;
+import iscm.manageruser.model.ERole;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.GroupCountView;
+import iscm.manageruser.repositories.projections.PasswordExpiryCountView;
+import iscm.manageruser.repositories.projections.RoleCountView;
+import iscm.manageruser.repositories.projections.UserStatsView;
+import iscm.manageruser.request.UserDirectoryStatsDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserDirectoryStatsTest {
+
+    private final LocalDate today = LocalDate.now();
+    private UserRepository userRepository;
+    private UserDirectoryStats stats;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        stats = new UserDirectoryStats(userRepository, mock(RoleRegistry.class), 30, 365);
+        when(userRepository.count()).thenReturn(3L);
+        when(userRepository.countLocked()).thenReturn(1L);
+        when(userRepository.countBySucursal()).thenReturn(List.of(new GroupCountView("Central", 2L), new GroupCountView("Norte", 1L)));
+        when(userRepository.countByCiudad()).thenReturn(List.of(new GroupCountView("La Paz", 3L)));
+        when(userRepository.countByRole()).thenReturn(List.of(new RoleCountView(ERole.ADMIN, 1L), new RoleCountView(ERole.ASISTENTE, 2L)));
+        when(userRepository.countByPasswordExpiry()).thenReturn(List.of(
+                new PasswordExpiryCountView(today.minusDays(5), 1L),
+                new PasswordExpiryCountView(today.plusDays(10), 1L),
+                new PasswordExpiryCountView(today.plusDays(90), 1L)));
+    }
+
+    @Test
+    void statsAreUnavailableUntilTheFirstReconciliation() {
+        assertThrows(ServiceUnavailableException.class, () -> stats.snapshot(null));
+    }
+
+    @Test
+    void reconciliationLoadsTheGroupedCounts() {
+        stats.reconcile();
+
+        UserDirectoryStatsDTO snapshot = stats.snapshot(null);
+        assertEquals(3, snapshot.getTotal());
+        assertEquals(1, snapshot.getBloqueados());
+        assertEquals(Map.of("Central", 2L, "Norte", 1L), snapshot.getPorSucursal());
+        assertEquals(Map.of("ADMIN", 1L, "ASISTENTE", 2L), snapshot.getPorRol());
+        assertEquals(1, snapshot.getPasswordsCaducadas());
+        assertEquals(1, snapshot.getPasswordsPorCaducar());
+        assertEquals(2, stats.snapshot(90).getPasswordsPorCaducar());
+    }
+
+    @Test
+    void writesApplyOnlyTheirDifference() {
+        stats.reconcile();
+        UserStatsView before = new UserStatsView("Norte", "La Paz", false, today.plusDays(90), Set.of(ERole.ASISTENTE));
+        UserStatsView after = new UserStatsView("Central", "La Paz", false, today.plusDays(90), Set.of(ERole.ASISTENTE, ERole.ADMIN));
+
+        stats.update(before, after);
+        stats.update(null, new UserStatsView("Sur", "Oruro", true, today.plusDays(1), Set.of(ERole.ASISTENTE)));
+
+        UserDirectoryStatsDTO snapshot = stats.snapshot(null);
+        assertEquals(4, snapshot.getTotal());
+        assertEquals(2, snapshot.getBloqueados());
+        assertEquals(Map.of("Central", 3L, "Sur", 1L), snapshot.getPorSucursal());
+        assertEquals(Map.of("La Paz", 3L, "Oruro", 1L), snapshot.getPorCiudad());
+        assertEquals(Map.of("ADMIN", 2L, "ASISTENTE", 3L), snapshot.getPorRol());
+        assertEquals(2, snapshot.getPasswordsPorCaducar());
+
+        // La siguiente conciliación vuelve a los valores de la BD y registra la desviación.
+        stats.reconcile();
+        assertEquals(3, stats.snapshot(null).getTotal());
+        assertEquals(9L, stats.stats().get("lastDrift"));
+    }
+
+    @Test
+    void writesAppliedBeforeTheSnapshotAreNotReplayed() {
+        stats.reconcile();
+        UserStatsView created = new UserStatsView("Sur", "Oruro", false, today.plusDays(90), Set.of(ERole.ASISTENTE));
+        // Un alta confirma justo antes de la primera lectura de la conciliación: la instantánea ya la incluye.
+        when(userRepository.count()).thenAnswer(invocation -> {
+            stats.update(null, created);
+            return 4L;
+        });
+        when(userRepository.countBySucursal()).thenReturn(List.of(new GroupCountView("Central", 2L),
+                new GroupCountView("Norte", 1L), new GroupCountView("Sur", 1L)));
+
+        stats.reconcile();
+
+        UserDirectoryStatsDTO snapshot = stats.snapshot(null);
+        assertEquals(4, snapshot.getTotal());
+        assertEquals(Map.of("Central", 2L, "Norte", 1L, "Sur", 1L), snapshot.getPorSucursal());
+    }
+}
@@ -0,0 +1,93 @@
+package iscm.manageruser.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import iscm.manageruser.exception.BadRequestException;
+import iscm.manageruser.mapper.UserMapper;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UserView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserExportServiceImplTest {
+
+    // Más de dos veces el antiguo intervalo de vaciado del contexto (500): cada usuario debe salir completo.
+    private static final int USERS = 1201;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private UserRepository userRepository;
+    private UserExportServiceImpl exportService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.streamViews()).thenAnswer(invocation -> IntStream.rangeClosed(1, USERS).mapToObj(UserExportServiceImplTest::view));
+        exportService = new UserExportServiceImpl(userRepository, new UserMapper(mock(RoleRegistry.class)), objectMapper);
+    }
+
+    @Test
+    void exportsEveryUserWithAllItsRolesAsNdjson() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exportService.exportUsers(UserExportServiceImpl.FORMAT_NDJSON, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(USERS, lines.length);
+        for (int i = 0; i < USERS; i++) {
+            JsonNode user = objectMapper.readTree(lines[i]);
+            assertEquals(i + 1, user.get("id").asInt());
+            Set<String> roles = new HashSet<>();
+            user.get("roles").forEach(role -> roles.add(role.asText()));
+            assertEquals(rolesOf(i + 1), roles);
+        }
+        verify(userRepository).streamViews();
+    }
+
+    @Test
+    void exportsEveryUserAsCsv() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exportService.exportUsers(UserExportServiceImpl.FORMAT_CSV, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(USERS + 1, lines.length);
+        String[] row = lines[501].split(",");
+        assertEquals("501", row[0]);
+        assertEquals("\"Calle 501, Zona Sur\"", row[6] + "," + row[7]);
+        assertEquals(rolesOf(501), Set.of(row[row.length - 1].split("\\|")));
+    }
+
+    @Test
+    void rejectsUnknownFormatsBeforeReadingUsers() {
+        assertThrows(BadRequestException.class, () -> UserExportServiceImpl.checkFormat("xml"));
+        assertThrows(BadRequestException.class, () -> exportService.exportUsers("xml", new ByteArrayOutputStream()));
+    }
+
+    private static UserView view(int id) {
+        return new UserView((long) id, "usuario" + id, "usuario" + id + "@iscm.com", "Usuario " + id, "Central", "2245123",
+                "Calle " + id + ", Zona Sur", "71012345", "La Paz", "Cajero", false, LocalDate.of(2027, 1, 1),
+                String.join(",", rolesOf(id)));
+    }
+
+    // Usuarios con uno, dos o tres roles, para que los límites de cada bloque caigan sobre usuarios distintos.
+    private static Set<String> rolesOf(int id) {
+        return switch (id % 3) {
+            case 0 -> Set.of("ASISTENTE");
+            case 1 -> Set.of("ASISTENTE", "JEFE");
+            default -> Set.of("ADMIN", "ASISTENTE", "SISTEMAS");
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.request.BulkCreateItemResultDTO;
+import iscm.manageruser.request.BulkCreateResultDTO;
+import iscm.manageruser.request.CreateUserDTO;
+import iscm.manageruser.request.ImportJobDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceImplTest {
+
+    private final List<CreateUserDTO> received = new ArrayList<>();
+    private UserBulkService userBulkService;
+    private UserImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        userBulkService = mock(UserBulkService.class);
+        when(userBulkService.createUsers(anyList())).thenAnswer(invocation -> createdAll(invocation.getArgument(0)));
+        importService = new UserImportServiceImpl(userBulkService, 2, 100, 60_000L, 1, 1, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void importsCsvInChunksAndKeepsEarlierChunksWhenOneFails() throws Exception {
+        when(userBulkService.createUsers(anyList()))
+                .thenAnswer(invocation -> createdAll(invocation.getArgument(0)))
+                .thenThrow(new IllegalStateException("Conexión perdida"));
+        String csv = "﻿Username;Password;Email;Primer Nombre;Apellido Paterno;Sucursal;Celular;Telefono;Direccion;Ciudad;Cargo;Roles\r\n"
+                + "jperez;Password.Seguro.1!;jperez@iscm.com;Juan;Pérez;Central;71012345;2245123;\"Calle 1; \"\"B\"\"\";La Paz;Cajero;ASISTENTE | ADMIN\r\n"
+                + "\r\n"
+                + "mpena;Password.Seguro.2!;mpena@iscm.com;María;Peña;Norte;71012346;2245124;Calle 2;El Alto;Cajero;ASISTENTE;\r\n"
+                + "lmamani;Password.Seguro.3!;lmamani@iscm.com;Luis;Mamani;Norte;71012347;2245125;Calle 3;El Alto;Cajero;ASISTENTE\r\n"
+                + "rquispe;Password.Seguro.4!;rquispe@iscm.com;Rosa;Quispe;Norte;71012348;2245126;Calle 4;El Alto;Cajero;ASISTENTE;ADMIN\r\n";
+
+        ImportJobDTO job = awaitFinished(importService.startImport(
+                new MockMultipartFile("file", "usuarios.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(UserImportServiceImpl.STATUS_COMPLETED, job.getStatus());
+        assertEquals(4, job.getRowsProcessed());
+        assertEquals(2, job.getRowsCreated());
+        assertEquals(2, job.getRowsFailed());
+        // Roles sin comillas separados con el separador del archivo: la fila se rechaza en lugar de perder el segundo rol.
+        // La línea en blanco no cuenta como fila.
+        assertEquals(5, job.getRowErrors().get(0).getRow());
+        assertEquals("rquispe", job.getRowErrors().get(0).getUsername());
+        assertEquals(4, job.getRowErrors().get(1).getRow());
+        assertEquals(List.of("Conexión perdida"), job.getRowErrors().get(1).getErrors());
+
+        CreateUserDTO first = received.get(0);
+        assertEquals("Calle 1; \"B\"", first.getDireccion());
+        assertEquals("Juan", first.getPrimer_nombre());
+        assertNull(first.getSegundo_nombre());
+        assertEquals(Set.of("ASISTENTE", "ADMIN"), first.getRoles());
+        // Un separador sobrante al final de la fila (celda vacía) no la invalida.
+        assertEquals("mpena", received.get(1).getUsername());
+    }
+
+    @Test
+    void importsTheFirstSheetOfAnXlsxWorkbook() throws Exception {
+        ImportJobDTO job = awaitFinished(importService.startImport(
+                new MockMultipartFile("file", "usuarios.xlsx", "application/octet-stream", workbook())));
+
+        assertEquals(UserImportServiceImpl.STATUS_COMPLETED, job.getStatus());
+        assertEquals(1, job.getRowsCreated());
+        CreateUserDTO user = received.get(0);
+        assertEquals("jperez", user.getUsername());
+        assertEquals("Password.Seguro.1!", user.getPassword());
+        assertEquals("71012345", user.getCelular());
+        assertEquals("Peña", user.getApellido_paterno());
+        assertEquals(Set.of("ASISTENTE", "ADMIN"), user.getRoles());
+    }
+
+    @Test
+    void failsTheJobWhenRequiredColumnsAreMissing() throws Exception {
+        ImportJobDTO job = awaitFinished(importService.startImport(
+                new MockMultipartFile("file", "usuarios.csv", "text/csv", "username,email\njperez,j@iscm.com\n".getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(UserImportServiceImpl.STATUS_FAILED, job.getStatus());
+        assertEquals("Faltan columnas en la cabecera: password, primer_nombre, apellido_paterno, sucursal, celular, "
+                + "telefono, direccion, ciudad, cargo, roles.", job.getError());
+    }
+
+    @Test
+    void refusesChunksLargerThanTheBulkLimit() {
+        assertThrows(IllegalStateException.class, () -> new UserImportServiceImpl(userBulkService, 1001, 100, 60_000L, 1, 1, 1000));
+    }
+
+    private BulkCreateResultDTO createdAll(List<CreateUserDTO> users) {
+        received.addAll(users);
+        List<BulkCreateItemResultDTO> items = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            items.add(new BulkCreateItemResultDTO(i, users.get(i).getUsername(), true, null, List.of()));
+        }
+        return new BulkCreateResultDTO(users.size(), users.size(), 0, items);
+    }
+
+    private ImportJobDTO awaitFinished(ImportJobDTO job) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            ImportJobDTO current = importService.getImport(job.getId());
+            if (current.getFinishedAt() != null) {
+                return current;
+            }
+            Thread.sleep(25);
+        }
+        throw new AssertionError("La importación no terminó");
+    }
+
+    // Libro mínimo: cabecera con textos compartidos, celdas en línea, un número y una celda omitida (segundo_nombre).
+    private static byte[] workbook() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            entry(zip, "xl/workbook.xml", "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                    + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                    + "<sheets><sheet name=\"Usuarios\" sheetId=\"1\" r:id=\"rId3\"/></sheets></workbook>");
+            entry(zip, "xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId3\" Type=\"worksheet\" Target=\"worksheets/usuarios.xml\"/></Relationships>");
+            entry(zip, "xl/sharedStrings.xml", "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                    + "<si><t>username</t></si><si><t>password</t></si><si><t>email</t></si><si><t>primer_nombre</t></si>"
+                    + "<si><t>segundo_nombre</t></si><si><t>apellido_paterno</t></si><si><t>sucursal</t></si><si><t>celular</t></si>"
+                    + "<si><t>telefono</t></si><si><t>direccion</t></si><si><t>ciudad</t></si><si><t>cargo</t></si><si><t>roles</t></si>"
+                    + "<si><r><t>Pe</t></r><r><t>ña</t></r><rPh><t>ペ</t></rPh></si></sst>");
+            StringBuilder header = new StringBuilder("<row r=\"1\">");
+            for (int i = 0; i < 13; i++) {
+                header.append("<c r=\"").append((char) ('A' + i)).append("1\" t=\"s\"><v>").append(i).append("</v></c>");
+            }
+            header.append("</row>");
+            entry(zip, "xl/worksheets/usuarios.xml", "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                    + header
+                    + "<row r=\"2\">" + inline("A2", "jperez") + inline("B2", "Password.Seguro.1!") + inline("C2", "jperez@iscm.com")
+                    + inline("D2", "Juan") + "<c r=\"F2\" t=\"s\"><v>13</v></c>" + inline("G2", "Central")
+                    + "<c r=\"H2\"><v>71012345</v></c>" + inline("I2", "2245123") + inline("J2", "Calle 1") + inline("K2", "La Paz")
+                    + inline("L2", "Cajero") + inline("M2", "ASISTENTE|ADMIN") + "</row>"
+                    + "</sheetData></worksheet>");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String inline(String reference, String text) {
+        return "<c r=\"" + reference + "\" t=\"inlineStr\"><is><t>" + text + "</t></is></c>";
+    }
+
+    private static void entry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,83 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.ResourceNotFoundException;
+import iscm.manageruser.request.UserResponseDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserResponseCacheTest {
+
+    @Test
+    void concurrentMissesForTheSameUserLoadOnce() throws Exception {
+        UserResponseCache cache = new UserResponseCache(100, 60_000L);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        UserResponseDTO user = user("jperez");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<UserResponseDTO>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> cache.get("jperez", 3L, () -> {
+                loads.incrementAndGet();
+                await(loading);
+                return user;
+            })));
+        }
+        Thread.sleep(100);
+        loading.countDown();
+        for (Future<UserResponseDTO> result : results) {
+            assertSame(user, result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void reloadsWhenTheVersionChangesOrTheEntryIsInvalidated() {
+        UserResponseCache cache = new UserResponseCache(100, 60_000L);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("jperez", 1L, () -> user("v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.get("jperez", 1L, () -> user("v" + loads.incrementAndGet())).getUsername());
+        assertEquals("v2", cache.get("jperez", 2L, () -> user("v" + loads.incrementAndGet())).getUsername());
+        cache.invalidate("jperez");
+        assertEquals("v3", cache.get("jperez", 2L, () -> user("v" + loads.incrementAndGet())).getUsername());
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        UserResponseCache cache = new UserResponseCache(100, 60_000L);
+
+        assertThrows(ResourceNotFoundException.class, () -> cache.get("nadie", 0L, () -> {
+            throw new ResourceNotFoundException("Usuario no encontrado con username: nadie");
+        }));
+        assertEquals("nadie", cache.get("nadie", 0L, () -> user("nadie")).getUsername());
+    }
+
+    private static UserResponseDTO user(String username) {
+        return new UserResponseDTO(1L, username, username + "@iscm.com", "Juan Perez", "Central", "2 243939",
+                "Calle 123", "710 12345", "La Paz", "Cajero", false, null, Set.of("ASISTENTE"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package iscm.manageruser.service;
+
+import iscm.manageruser.exception.ServiceUnavailableException;
+import iscm.manageruser.model.UserEntity;
+import iscm.manageruser.repositories.UserRepository;
+import iscm.manageruser.repositories.projections.UserSearchView;
+import iscm.manageruser.request.UserSearchResultDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSearchIndexTest {
+
+    private UserRepository userRepository;
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        index = new UserSearchIndex(userRepository, 20, 100);
+        when(userRepository.streamSearchViews()).thenReturn(Stream.of(
+                new UserSearchView(1L, "jperez", "juan.perez@iscm.com", "Juan", "Carlos", "Pérez", "Mamani", "Central", "La Paz", "Cajero"),
+                new UserSearchView(2L, "mpena", "maria.pena@iscm.com", "María", null, "Peña", "Quispe", "Norte", "El Alto", "Oficial de Créditos"),
+                new UserSearchView(3L, "perezl", "luis@iscm.com", "Luis", null, "Perezagua", "", "Central", "Santa Cruz", "Cajero")));
+        index.rebuild();
+    }
+
+    @Test
+    void searchIsUnavailableUntilTheIndexIsBuilt() {
+        UserSearchIndex empty = new UserSearchIndex(userRepository, 20, 100);
+        assertThrows(ServiceUnavailableException.class, () -> empty.search("juan", null));
+    }
+
+    @Test
+    void ignoresAccentsAndCaseAndRanksExactMatchesFirst() {
+        List<UserSearchResultDTO> results = index.search("PEREZ", null);
+
+        assertEquals(List.of(1L, 3L), results.stream().map(UserSearchResultDTO::getId).toList());
+        assertEquals("Juan Carlos Pérez Mamani", results.get(0).getNombreCompleto());
+        assertEquals(List.of(2L), index.search("pena", null).stream().map(UserSearchResultDTO::getId).toList());
+        assertEquals(List.of(2L), index.search("créd", null).stream().map(UserSearchResultDTO::getId).toList());
+    }
+
+    @Test
+    void requiresEveryTermAndMatchesInsideWords() {
+        assertEquals(List.of(3L), index.search("cajero santa", null).stream().map(UserSearchResultDTO::getId).toList());
+        assertEquals(List.of(1L), index.search("amani", null).stream().map(UserSearchResultDTO::getId).toList());
+        assertTrue(index.search("cajero norte", null).isEmpty());
+        assertEquals(1, index.search("cajero", 1).size());
+    }
+
+    @Test
+    void reindexingAUserReplacesItsPreviousTokens() {
+        UserEntity updated = UserEntity.builder()
+                .id(1L).username("jperez").email("juan.perez@iscm.com").primer_nombre("Juan").segundo_nombre("Carlos")
+                .apellido_paterno("Pérez").apellido_materno("Mamani").sucursal("Sur").ciudad("Cochabamba").cargo("Gerente")
+                .build();
+
+        index.index(updated);
+
+        assertTrue(index.search("la paz", null).isEmpty());
+        assertEquals(List.of(1L), index.search("cochabamba gerente", null).stream().map(UserSearchResultDTO::getId).toList());
+        assertEquals(List.of(3L), index.search("cajero central", null).stream().map(UserSearchResultDTO::getId).toList());
+    }
+}